@@ -0,0 +1,66 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Общие данные для замеров: файл с доменами заданного размера
+ */
+final class BenchmarkData {
+    private static PrintStream originalOut;
+
+    private BenchmarkData() {
+    }
+
+    static String domain(int i) {
+        return "host" + i + ".example.com";
+    }
+
+    static String ip(int i) {
+        return ((i >>> 24) & 0xFF) + "." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    /**
+     * Создает временный файл в формате domains.json с парами host{i}.example.com -> i
+     */
+    static Path generateFile(int size) throws IOException {
+        Path file = Files.createTempFile("bench_domains", ".json");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"addresses\": [\n");
+            for (int i = 0; i < size; i++) {
+                writer.write("    {\"domain\": \"" + domain(i) + "\", \"ip\": \"" + ip(i) + "\"}");
+                if (i < size - 1) writer.write(",\n");
+            }
+            writer.write("\n  ]\n}");
+        }
+        return file;
+    }
+
+    /**
+     * Отключает сообщения FileService в консоль, чтобы вывод не искажал замеры
+     */
+    static synchronized void silenceOutput() {
+        if (originalOut != null) return;
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    static synchronized void restoreOutput() {
+        if (originalOut == null) return;
+        System.setOut(originalOut);
+        originalOut = null;
+    }
+}
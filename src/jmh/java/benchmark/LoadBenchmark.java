@@ -0,0 +1,63 @@
+package benchmark;
+
+import json.FileService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка файла с доменами: разбор JSON и открытие готового двоичного снимка
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoadBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private Path file;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkData.silenceOutput();
+        file = BenchmarkData.generateFile(size);
+        snapshot = file.resolveSibling(file.getFileName() + ".snapshot");
+        new FileService(file, null, snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(snapshot);
+        BenchmarkData.restoreOutput();
+    }
+
+    @Benchmark
+    public FileService load() {
+        return new FileService(file);
+    }
+
+    @Benchmark
+    public String loadSnapshot() {
+        // Первый поиск входит в замер, чтобы данные действительно читались из снимка
+        return new FileService(file, null, snapshot).getIpByDomain("host0.example.com");
+    }
+}
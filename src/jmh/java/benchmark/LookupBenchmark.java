@@ -0,0 +1,116 @@
+package benchmark;
+
+import json.FileService;
+import json.Resolution;
+import model.DomainIpPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по домену и IP, пакетное разрешение и сортированный список пар
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LookupBenchmark {
+    private static final int KEYS = 1024;
+    // Пакет для resolveAll: домены и IP вперемешку, каждый десятый ключ отсутствует
+    private static final int BATCH = 200_000;
+
+    @Param({"100000"})
+    int size;
+
+    private FileService fileService;
+    private final String[] domains = new String[KEYS];
+    private final String[] ips = new String[KEYS];
+    private final String[] batch = new String[BATCH];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkData.silenceOutput();
+        Path file = BenchmarkData.generateFile(size);
+        try {
+            fileService = new FileService(file);
+        } finally {
+            Files.delete(file);
+        }
+        // Случайные существующие ключи, чтобы замер не сводился к одной горячей записи
+        Random random = new Random(42);
+        for (int i = 0; i < KEYS; i++) {
+            int index = random.nextInt(size);
+            domains[i] = BenchmarkData.domain(index);
+            ips[i] = BenchmarkData.ip(index);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            int index = random.nextInt(size);
+            batch[i] = i % 10 == 9 ? "missing-" + i + ".example"
+                    : i % 2 == 0 ? BenchmarkData.domain(index) : BenchmarkData.ip(index);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.restoreOutput();
+    }
+
+    @Benchmark
+    public String getIpByDomain() {
+        return fileService.getIpByDomain(domains[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    public String getDomainById() {
+        return fileService.getDomainById(ips[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<DomainIpPair> getDomainIpPairs() {
+        return fileService.getDomainIpPairs();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long resolveAll() {
+        return fileService.resolveAll(Arrays.stream(batch)).filter(Resolution::isFound).count();
+    }
+
+    /**
+     * То же по одному ключу в одном потоке, для сравнения с resolveAll
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long resolveOneByOne() {
+        long found = 0;
+        for (String key : batch) {
+            String value = Character.isDigit(key.charAt(0))
+                    ? fileService.getDomainById(key) : fileService.getIpByDomain(key);
+            if (value != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
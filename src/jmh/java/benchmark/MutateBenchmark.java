@@ -0,0 +1,84 @@
+package benchmark;
+
+import json.FileService;
+import json.Journal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление пары вместе с сохранением: перезапись файла целиком или запись в журнал.
+ * С журналом сохранение стоит одной дописанной строки, и замер показывает в основном
+ * копирование снимка, которое FileService делает при каждом изменении.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MutateBenchmark {
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean journal;
+
+    private Path file;
+    private Path journalFile;
+    private FileService fileService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        BenchmarkData.silenceOutput();
+    }
+
+    // Файл пересоздается на каждой итерации, чтобы его размер не рос от итерации к итерации
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        file = BenchmarkData.generateFile(size);
+        if (journal) {
+            journalFile = Files.createTempFile("bench_domains", ".journal");
+            // Без уплотнения за время замера: измеряется само изменение, а не перезапись файла
+            fileService = new FileService(file, new Journal(journalFile, Integer.MAX_VALUE));
+        } else {
+            fileService = new FileService(file);
+        }
+        next = size;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        fileService.close();
+        Files.deleteIfExists(file);
+        if (journalFile != null) {
+            Files.deleteIfExists(journalFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        BenchmarkData.restoreOutput();
+    }
+
+    @Benchmark
+    public boolean addDomainIpPair() {
+        int i = next++;
+        return fileService.addDomainIpPair(BenchmarkData.domain(i), BenchmarkData.ip(i));
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import cli.InputHandler;
+import model.Ipv4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка формата IPv4 на смеси корректных и некорректных адресов.
+ * regex - прежняя проверка через String.matches, для сравнения.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidatorBenchmark {
+    private static final String IPV4_PATTERN =
+            "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$";
+
+    private final String[] inputs = {
+            "192.168.1.1", "10.0.0.1", "255.255.255.255", "0.0.0.0",
+            "256.1.1.1", "1.2.3", "example.com", "01.002.3.4"
+    };
+    private int next;
+
+    @Benchmark
+    public boolean isValidIPv4() {
+        return InputHandler.isValidIPv4(inputs[next++ & (inputs.length - 1)]);
+    }
+
+    @Benchmark
+    public long tryParse() {
+        return Ipv4.tryParse(inputs[next++ & (inputs.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean regex() {
+        return inputs[next++ & (inputs.length - 1)].matches(IPV4_PATTERN);
+    }
+}
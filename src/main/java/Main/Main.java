@@ -1,10 +1,29 @@
 package Main;
 
 import cli.ConsoleUI;
+import cli.ScriptRunner;
+import daemon.LookupDaemon;
+import metrics.Metrics;
+import java.util.Arrays;
 
 public class Main {
 
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--daemon")) {
+            Metrics.registerMBeans();
+            // Сервис продолжает работать в своих потоках до остановки процесса
+            int code = LookupDaemon.run(args);
+            if (code != 0) {
+                System.exit(code);
+            }
+            return;
+        }
+        // С аргументами командной строки работаем без диалога с пользователем
+        if (args.length > 0) {
+            System.exit(ScriptRunner.run(args));
+        }
+        // Метрики в JMX нужны долгоживущим режимам; разовый запуск команд пишет их в файл (metrics.file)
+        Metrics.registerMBeans();
         ConsoleUI consoleUI = new ConsoleUI();
         consoleUI.start();
     }
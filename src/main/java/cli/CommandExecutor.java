@@ -1,19 +1,44 @@
 package cli;
 
 import json.FileService;
+import json.Journal;
+import json.Mutation;
 import model.DomainIpPair;
+import sftp.ConnectionSettings;
+import sftp.FanOutUploader;
+import sftp.SessionFactory;
 import sftp.SftpClient;
+import sftp.SftpSessionPool;
+import sftp.TargetResult;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 public class CommandExecutor {
+    // Путь к локальному журналу изменений; если не задан, файл выгружается после каждого изменения
+    private static final String JOURNAL_PROPERTY = "sftp.journal";
+    private static final String JOURNAL_THRESHOLD_PROPERTY = "sftp.journal.threshold";
+    private static final String SNAPSHOT_PROPERTY = "sftp.snapshot";
+    // Путь к файлу на сервере; если не задан, файл ищется в домашнем каталоге
+    private static final String REMOTE_PATH_PROPERTY = "sftp.remotePath";
+
     private final SftpClient sftpClient;
     private FileService fileService;
+    private Path localPath;
     private final InputHandler inputHandler;
+    private long uploadedSaveCount;
+    // Пул соединений для выгрузки на несколько серверов, создается при первом использовании
+    private SftpSessionPool sessionPool;
 
     public CommandExecutor(SftpClient sftpClient) {
         this.sftpClient = sftpClient;
         this.inputHandler = new InputHandler();
+        sftpClient.setRemotePath(System.getProperty(REMOTE_PATH_PROPERTY));
     }
 
     boolean connectToSftp() {
@@ -60,7 +85,11 @@ public class CommandExecutor {
         }
 
         try {
-            fileService = new FileService(Paths.get(localPath));
+            this.localPath = Paths.get(localPath);
+            fileService = new FileService(this.localPath, createJournal(), snapshotPath());
+            uploadedSaveCount = 0;
+            // Изменения, восстановленные из журнала, сразу отправляются на сервер
+            syncWithServer();
             return true;
         } catch (Exception e) {
             System.out.println("Ошибка при чтении файла: " + e.getMessage());
@@ -68,6 +97,36 @@ public class CommandExecutor {
         }
     }
 
+    private static Journal createJournal() {
+        String journalPath = System.getProperty(JOURNAL_PROPERTY);
+        if (journalPath == null || journalPath.isEmpty()) {
+            return null;
+        }
+        int threshold = Integer.getInteger(JOURNAL_THRESHOLD_PROPERTY, Journal.DEFAULT_COMPACT_THRESHOLD);
+        return new Journal(Paths.get(journalPath), threshold);
+    }
+
+    private static Path snapshotPath() {
+        String snapshotPath = System.getProperty(SNAPSHOT_PROPERTY);
+        return snapshotPath == null || snapshotPath.isEmpty() ? null : Paths.get(snapshotPath);
+    }
+
+    /**
+     * Выгружает файл на сервер, если он был перезаписан с момента последней выгрузки.
+     * В режиме журнала файл перезаписывается только при уплотнении.
+     */
+    private boolean syncWithServer() {
+        long saveCount = fileService.getSaveCount();
+        if (saveCount == uploadedSaveCount) {
+            return true;
+        }
+        if (!sftpClient.uploadFileToServer()) {
+            return false;
+        }
+        uploadedSaveCount = saveCount;
+        return true;
+    }
+
     public void showDomainIpPairs() {
         List<DomainIpPair> pairs = fileService.getDomainIpPairs();
         if (pairs.isEmpty()) {
@@ -99,11 +158,13 @@ public class CommandExecutor {
             String domain = inputHandler.getNonEmptyInput("Введите доменное имя");
             String ip = inputHandler.getNonEmptyInput("Введите IP-адрес");
             if (fileService.addDomainIpPair(domain, ip)) {
-                if (sftpClient.uploadFileToServer()) {
+                if (syncWithServer()) {
                     System.out.println("Пара успешно добавлена");
                 } else {
                     System.out.println("Ошибка при сохранении на сервер");
                 }
+            } else {
+                System.out.println("Пара не добавлена: домен или IP-адрес уже существует");
             }
         } catch (Exception e) {
             System.out.println("Ошибка:" + e.getMessage());
@@ -113,7 +174,7 @@ public class CommandExecutor {
     public void removePair() {
         String value = inputHandler.getNonEmptyInput("Введите домен или IP для удаления");
         if (fileService.removeDomainIpPair(value)) {
-            if (sftpClient.uploadFileToServer()) {
+            if (syncWithServer()) {
                 System.out.println("Пара успешно удалена");
             } else {
                 System.out.println("Ошибка при сохранении на сервер");
@@ -124,11 +185,153 @@ public class CommandExecutor {
 
     }
 
+    /**
+     * Применяет изменения из локального файла одним пакетом и выгружает файл на сервер один раз.
+     * Каждая строка файла: "add домен ip" или "remove домен_или_ip"; пустые строки и строки с # пропускаются.
+     */
+    public void importBatch() {
+        String path = inputHandler.getNonEmptyInput("Введите путь к файлу с изменениями");
+        List<Mutation> mutations;
+        try {
+            mutations = readMutations(Paths.get(path));
+        } catch (IOException e) {
+            System.out.println("Ошибка при чтении файла: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка: " + e.getMessage());
+            return;
+        }
+
+        try {
+            int applied = fileService.applyBatch(mutations);
+            if (syncWithServer()) {
+                System.out.println("Применено изменений: " + applied);
+            } else {
+                System.out.println("Ошибка при сохранении на сервер");
+            }
+        } catch (Exception e) {
+            System.out.println("Ошибка:" + e.getMessage());
+        }
+    }
+
+    static List<Mutation> readMutations(Path path) throws IOException {
+        List<Mutation> mutations = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                try {
+                    mutations.add(Mutation.parse(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("строка " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return mutations;
+    }
+
+    /**
+     * Выгружает текущий файл на список серверов параллельно.
+     * Каждая строка файла серверов: "хост[:порт] логин пароль"; пустые строки и строки с # пропускаются.
+     */
+    public void uploadToMultipleServers() {
+        String path = inputHandler.getNonEmptyInput("Введите путь к файлу со списком серверов");
+        boolean strict = !"нет".equals(inputHandler.getNonEmptyInput("Включить проверку ключей хоста? (да/нет):")
+                .trim().toLowerCase());
+        List<ConnectionSettings> targets;
+        try {
+            targets = readTargets(Paths.get(path), strict);
+        } catch (IOException e) {
+            System.out.println("Ошибка при чтении файла: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка: " + e.getMessage());
+            return;
+        }
+        if (targets.isEmpty()) {
+            System.out.println("Список серверов пуст");
+            return;
+        }
+
+        try {
+            // Накопленные в журнале изменения должны попасть в выгружаемый файл
+            fileService.compact();
+            if (sessionPool == null) {
+                sessionPool = new SftpSessionPool(SessionFactory.shared());
+            }
+            List<TargetResult> results = new FanOutUploader(sessionPool)
+                    .upload(localPath, sftpClient.getRemoteFileName(), targets);
+            long succeeded = results.stream().filter(TargetResult::isSuccess).count();
+            results.forEach(System.out::println);
+            System.out.println("Успешно выгружено на " + succeeded + " из " + results.size() + " серверов");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Выгрузка прервана");
+        } catch (Exception e) {
+            System.out.println("Ошибка:" + e.getMessage());
+        }
+    }
+
+    static List<ConnectionSettings> readTargets(Path path, boolean strictHostKeyChecking) throws IOException {
+        List<ConnectionSettings> targets = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\s+");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("строка " + lineNumber + ": ожидается 'хост[:порт] логин пароль'");
+                }
+                String host = parts[0];
+                int port = ConnectionSettings.DEFAULT_PORT;
+                int colon = host.lastIndexOf(':');
+                if (colon > 0) {
+                    try {
+                        port = Integer.parseInt(host.substring(colon + 1));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("строка " + lineNumber + ": порт должен быть числом");
+                    }
+                    host = host.substring(0, colon);
+                }
+                targets.add(new ConnectionSettings(host, port, parts[1], parts[2])
+                        .setStrictHostKeyChecking(strictHostKeyChecking));
+            }
+        }
+        return targets;
+    }
+
     public void disconect() {
+        if (fileService != null) {
+            try {
+                fileService.close();
+                if (isConnected() && !syncWithServer()) {
+                    System.out.println("Ошибка при сохранении на сервер");
+                }
+            } catch (Exception e) {
+                System.out.println("Ошибка при сохранении изменений: " + e.getMessage());
+            }
+        }
+        if (sessionPool != null) {
+            sessionPool.close();
+            sessionPool = null;
+        }
         sftpClient.disconnect();
     }
 
     public boolean isConnected() {
         return sftpClient.isConnected();
     }
+
+    /**
+     * Восстанавливает оборвавшееся соединение с теми же данными, без повторного ввода
+     */
+    public boolean reconnect() {
+        return sftpClient.reconnect();
+    }
 }
@@ -1,8 +1,14 @@
 package cli;
 
+import log.Log;
+import metrics.PrometheusDump;
 import sftp.SftpClient;
 
 public class ConsoleUI {
+    // Файл, в который периодически пишутся метрики в формате Prometheus, и интервал записи в секундах
+    private static final String METRICS_FILE_PROPERTY = "sftp.metrics.file";
+    private static final String METRICS_INTERVAL_PROPERTY = "sftp.metrics.interval";
+
     private final SftpClient sftpClient;
     private final InputHandler inputHandler;
     private final CommandExecutor commandExecutor;
@@ -14,11 +20,19 @@ public class ConsoleUI {
     }
 
     public void start() {
+        PrometheusDump metricsDump;
+        try {
+            metricsDump = PrometheusDump.start(System.getProperty(METRICS_FILE_PROPERTY),
+                    System.getProperty(METRICS_INTERVAL_PROPERTY));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка настроек метрик: " + e.getMessage());
+            metricsDump = null;
+        }
         boolean isRunning = true;
         while (isRunning) {
             try {
                 // Проверяем соединение с SFTP
-                if (!commandExecutor.isConnected()) {
+                if (!commandExecutor.isConnected() && !commandExecutor.reconnect()) {
                     System.out.println("Для начала работы с программой введите данные для подключения к sftp-серверу.");
                     if (!commandExecutor.connectToSftp()) {
                         break;
@@ -30,7 +44,8 @@ public class ConsoleUI {
                     break;
                 }
 
-                // Показываем меню и обрабатываем выбор
+                // Показываем меню и обрабатываем выбор; сообщения журнала выводятся до меню, а не поверх него
+                Log.flush();
                 showConsoleMenu();
                 String choice = inputHandler.getMenuChoice();
                 switch (choice) {
@@ -53,17 +68,29 @@ public class ConsoleUI {
                         commandExecutor.disconect();
                         isRunning = false;
                         break;
+                    case "7":
+                        commandExecutor.importBatch();
+                        break;
+                    case "8":
+                        commandExecutor.uploadToMultipleServers();
+                        break;
                     default:
                         System.out.println("Неверный выбор. Попробуйте снова.");
                 }
             } catch (Exception e) {
                 System.out.println("Произошла ошибка: " + e.getMessage());
-                System.out.println("Попробуйте переподключиться к серверу.");
-                sftpClient.disconnect();
-                isRunning = false;
+                // Оборванное соединение восстанавливается; работа завершается, только если это не удалось
+                if (!commandExecutor.isConnected() && !commandExecutor.reconnect()) {
+                    System.out.println("Не удалось восстановить соединение, попробуйте переподключиться к серверу.");
+                    commandExecutor.disconect();
+                    isRunning = false;
+                }
             }
         }
 
+        if (metricsDump != null) {
+            metricsDump.close();
+        }
         System.out.println("Работа завершена.");
     }
 
@@ -78,6 +105,8 @@ public class ConsoleUI {
         System.out.println("4. Добавление новой пары \"домен – адрес\" в файл");
         System.out.println("5. Удаление пары \"домен – адрес\" по доменному имени или IP-адресу");
         System.out.println("6. Завершение работы");
+        System.out.println("7. Пакетный импорт изменений из файла");
+        System.out.println("8. Выгрузка файла на несколько серверов");
     }
 
 
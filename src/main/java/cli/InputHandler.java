@@ -1,12 +1,11 @@
 package cli;
 
+import model.Ipv4;
 import java.io.InputStream;
 import java.util.Scanner;
 
 public class InputHandler {
     private final Scanner scanner;
-    private static final String IPV4_PATTERN =
-            "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$";
 
     public InputHandler() {
         this.scanner = new Scanner(System.in);
@@ -44,7 +43,7 @@ public class InputHandler {
 
 
     public static boolean isValidIPv4(String ip) {
-        return ip != null && ip.matches(IPV4_PATTERN);
+        return Ipv4.tryParse(ip) != Ipv4.INVALID;
     }
 
     public String getMenuChoice() {
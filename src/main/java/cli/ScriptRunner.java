@@ -0,0 +1,348 @@
+package cli;
+
+import json.FileService;
+import json.Mutation;
+import json.Resolution;
+import log.Level;
+import log.Log;
+import metrics.PrometheusDump;
+import model.DomainIpPair;
+import sftp.ConnectionSettings;
+import sftp.SftpClient;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Неинтерактивный режим: выполняет последовательность команд за одно подключение и завершается.
+ * <pre>
+ * java -jar sftp-client.jar --config client.properties --script commands.txt
+ * java -jar sftp-client.jar --config client.properties "get-ip example.com" "add new.com 10.0.0.1"
+ * </pre>
+ * Результаты команд выводятся в stdout по одному в строке через табуляцию, сообщения клиента - в stderr.
+ * Идущие подряд add/remove применяются одним пакетом; файл выгружается на сервер один раз в конце.
+ * Команда resolve разрешает файл с доменами и IP-адресами (или stdin, если указан "-") построчно,
+ * не загружая его в память целиком.
+ */
+public class ScriptRunner {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_COMMAND_FAILED = 1;
+    public static final int EXIT_SETUP_FAILED = 2;
+    // Команды выполнены, но изменения не удалось выгрузить на сервер
+    public static final int EXIT_UPLOAD_FAILED = 3;
+
+    private static final String NOT_FOUND = "-";
+    // Строк результата resolve, которые собираются перед записью в out
+    private static final int RESOLVE_OUTPUT_LINES = 4096;
+
+    private final SftpClient sftpClient;
+    private final PrintStream out;
+    private final PrintStream err;
+    private FileService fileService;
+    private Path snapshotPath;
+    private boolean streaming;
+    private final List<Mutation> pending = new ArrayList<>();
+    private boolean failed;
+
+    public ScriptRunner(SftpClient sftpClient, PrintStream out, PrintStream err) {
+        this.sftpClient = sftpClient;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Точка входа из командной строки
+     * @return код завершения процесса
+     */
+    public static int run(String[] args) {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        String configPath = null;
+        String scriptPath = null;
+        List<String> commands = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--config".equals(args[i]) && i + 1 < args.length) {
+                configPath = args[++i];
+            } else if ("--script".equals(args[i]) && i + 1 < args.length) {
+                scriptPath = args[++i];
+            } else {
+                commands.add(args[i]);
+            }
+        }
+        if (configPath == null) {
+            err.println("Использование: --config <файл настроек> [--script <файл команд>] [команды...]");
+            err.println("Коды завершения: 0 - успешно, 1 - ошибка в команде, 2 - ошибка настроек, подключения "
+                    + "или чтения файла, 3 - изменения не выгружены на сервер");
+            return EXIT_SETUP_FAILED;
+        }
+
+        ConnectionSettings settings;
+        String snapshot;
+        boolean streaming;
+        boolean compressFile;
+        String remotePath;
+        PrometheusDump metricsDump;
+        try {
+            Properties properties = loadProperties(Paths.get(configPath));
+            settings = ConnectionSettings.fromProperties(properties);
+            snapshot = properties.getProperty("snapshot");
+            streaming = "yes".equalsIgnoreCase(properties.getProperty("streaming", "no").trim());
+            compressFile = "yes".equalsIgnoreCase(properties.getProperty("compressFile", "no").trim());
+            remotePath = properties.getProperty("remotePath");
+            String logLevel = properties.getProperty("log.level");
+            if (logLevel != null && !logLevel.trim().isEmpty()) {
+                Log.setLevel(Level.parse(logLevel));
+            }
+            if (scriptPath != null) {
+                commands.addAll(readScript(Paths.get(scriptPath)));
+            }
+            metricsDump = PrometheusDump.start(properties.getProperty("metrics.file"),
+                    properties.getProperty("metrics.intervalSeconds"));
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Ошибка настроек: " + e.getMessage());
+            return EXIT_SETUP_FAILED;
+        }
+
+        // Сообщения клиента не должны смешиваться с результатами команд: журнал пишет в stderr,
+        // и туда же направляется прямой вывод в stdout
+        System.setOut(err);
+        try {
+            SftpClient sftpClient = new SftpClient();
+            sftpClient.setCompressNewFile(compressFile);
+            sftpClient.setRemotePath(remotePath);
+            if (!sftpClient.connect(settings)) {
+                return EXIT_SETUP_FAILED;
+            }
+            try {
+                ScriptRunner runner = new ScriptRunner(sftpClient, out, err);
+                if (snapshot != null && !snapshot.trim().isEmpty()) {
+                    runner.setSnapshotPath(Paths.get(snapshot.trim()));
+                }
+                runner.setStreaming(streaming);
+                return runner.execute(commands);
+            } finally {
+                sftpClient.disconnect();
+            }
+        } finally {
+            if (metricsDump != null) {
+                metricsDump.close();
+            }
+            Log.flush();
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Файл двоичного снимка, из которого данные читаются без разбора JSON, если файл на сервере не изменился
+     */
+    public void setSnapshotPath(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * Потоковый режим: файл читается из SFTP канала прямо в память и выгружается из памяти,
+     * без временного файла на диске
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Выполняет команды над уже подключенным клиентом
+     * @return код завершения
+     */
+    public int execute(List<String> commands) {
+        if (streaming) {
+            fileService = sftpClient.loadDomains();
+        } else {
+            String localPath = sftpClient.downloadDomainsFile();
+            fileService = localPath != null ? new FileService(Paths.get(localPath), null, snapshotPath) : null;
+        }
+        if (fileService == null) {
+            return EXIT_SETUP_FAILED;
+        }
+        long savedBefore = fileService.getSaveCount();
+
+        for (String command : commands) {
+            executeCommand(command.trim());
+        }
+        flushMutations();
+        fileService.close();
+
+        if (fileService.getSaveCount() != savedBefore && !upload()) {
+            err.println("Ошибка при сохранении на сервер");
+            return EXIT_UPLOAD_FAILED;
+        }
+        return failed ? EXIT_COMMAND_FAILED : EXIT_OK;
+    }
+
+    private boolean upload() {
+        return streaming ? sftpClient.uploadDomains(fileService) : sftpClient.uploadFileToServer();
+    }
+
+    private void executeCommand(String command) {
+        if (command.isEmpty() || command.startsWith("#")) return;
+        String[] parts = command.split("\\s+");
+        String name = parts[0].toLowerCase();
+
+        if ("add".equals(name) || "remove".equals(name)) {
+            try {
+                pending.add(Mutation.parse(command));
+            } catch (IllegalArgumentException e) {
+                fail(e.getMessage());
+            }
+            return;
+        }
+
+        // Чтение должно видеть результат предыдущих изменений
+        flushMutations();
+        switch (name) {
+            case "list":
+                if (parts.length > 2) {
+                    fail("Ожидается 'list [префикс домена]'");
+                    break;
+                }
+                List<DomainIpPair> pairs = parts.length == 2
+                        ? fileService.getDomainIpPairsByPrefix(parts[1])
+                        : fileService.getDomainIpPairs();
+                for (DomainIpPair pair : pairs) {
+                    out.println(pair.getDomain() + "\t" + pair.getIp());
+                }
+                break;
+            case "get-ip":
+                if (parts.length != 2) {
+                    fail("Ожидается 'get-ip <домен>'");
+                    break;
+                }
+                printLookup(parts[1], fileService.getIpByDomain(parts[1]));
+                break;
+            case "get-domain":
+                if (parts.length != 2) {
+                    fail("Ожидается 'get-domain <ip>'");
+                    break;
+                }
+                printLookup(parts[1], fileService.getDomainById(parts[1]));
+                break;
+            case "import":
+                if (parts.length != 2) {
+                    fail("Ожидается 'import <файл>'");
+                    break;
+                }
+                try {
+                    pending.addAll(CommandExecutor.readMutations(Paths.get(parts[1])));
+                    flushMutations();
+                } catch (IOException | IllegalArgumentException e) {
+                    fail("Ошибка импорта " + parts[1] + ": " + e.getMessage());
+                }
+                break;
+            case "resolve":
+                if (parts.length != 2) {
+                    fail("Ожидается 'resolve <файл со списком доменов и IP | ->'");
+                    break;
+                }
+                try {
+                    resolve(parts[1]);
+                } catch (IOException | UncheckedIOException e) {
+                    fail("Ошибка чтения " + parts[1] + ": " + e.getMessage());
+                }
+                break;
+            default:
+                fail("Неизвестная команда: " + command);
+        }
+    }
+
+    /**
+     * Разрешает ключи из файла или stdin ("-") по одному в строке; пустые строки пропускаются.
+     * Результаты выводятся в порядке ключей в том же формате, что и у get-ip и get-domain.
+     */
+    private void resolve(String source) throws IOException {
+        boolean stdin = "-".equals(source);
+        BufferedReader reader = stdin
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8);
+        Stream<String> keys = reader.lines().map(String::trim).filter(line -> !line.isEmpty());
+        // stdin не закрывается: он принадлежит процессу
+        if (!stdin) {
+            keys = keys.onClose(() -> close(reader));
+        }
+        try (Stream<Resolution> results = fileService.resolveAll(keys)) {
+            // Строки копятся пачкой: вывод построчно сбрасывал бы буфер out на каждой строке
+            StringBuilder batch = new StringBuilder();
+            int lines = 0;
+            Iterator<Resolution> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                Resolution resolution = iterator.next();
+                batch.append(resolution.getKey()).append('\t')
+                        .append(resolution.isFound() ? resolution.getValue() : NOT_FOUND).append('\n');
+                if (++lines == RESOLVE_OUTPUT_LINES) {
+                    out.print(batch);
+                    batch.setLength(0);
+                    lines = 0;
+                }
+            }
+            out.print(batch);
+            out.flush();
+        }
+    }
+
+    private static void close(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void printLookup(String key, String value) {
+        out.println(key + "\t" + (value != null ? value : NOT_FOUND));
+    }
+
+    private void flushMutations() {
+        if (pending.isEmpty()) return;
+        try {
+            int applied = fileService.applyBatch(pending);
+            out.println("applied\t" + applied);
+        } catch (IllegalArgumentException e) {
+            fail(e.getMessage());
+        } finally {
+            pending.clear();
+        }
+    }
+
+    private void fail(String message) {
+        failed = true;
+        err.println("Ошибка: " + message);
+    }
+
+    static Properties loadProperties(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    static List<String> readScript(Path path) throws IOException {
+        List<String> commands = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                commands.add(line);
+            }
+        }
+        return commands;
+    }
+}
@@ -0,0 +1,325 @@
+package daemon;
+
+import json.FileService;
+import log.Level;
+import log.Log;
+import log.Logger;
+import metrics.PrometheusDump;
+import sftp.ConnectionSettings;
+import sftp.SftpClient;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Резидентный сервис поиска: держит файл с доменами в памяти, периодически обновляет его с SFTP сервера
+ * и отвечает на запросы по построчному протоколу на локальном TCP порту:
+ * <pre>
+ * IP example.com      -> 192.168.1.1 | NOT_FOUND
+ * DOMAIN 192.168.1.1  -> example.com | NOT_FOUND
+ * PING                -> PONG
+ * QUIT                -> закрывает соединение
+ * </pre>
+ * Запросы можно отправлять пакетом, не дожидаясь ответов: ответы приходят в том же порядке.
+ */
+public class LookupDaemon implements Closeable {
+    private static final Logger LOG = Log.get(LookupDaemon.class);
+
+    public static final int DEFAULT_PORT = 5380;
+    public static final int DEFAULT_REFRESH_SECONDS = 60;
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    static final String NOT_FOUND = "NOT_FOUND";
+
+    // Загруженные данные заменяются целиком, читатели всегда видят согласованный экземпляр
+    private volatile FileService fileService;
+    private final int port;
+    private final ExecutorService workers;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean running;
+
+    public LookupDaemon(FileService fileService, int port, int maxConnections) {
+        this.fileService = fileService;
+        this.port = port;
+        this.workers = Executors.newFixedThreadPool(maxConnections, r -> {
+            Thread thread = new Thread(r, "lookup-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Открывает порт на localhost и начинает принимать соединения
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        running = true;
+        acceptThread = new Thread(this::acceptLoop, "lookup-accept");
+        acceptThread.start();
+        LOG.info("Сервис поиска запущен на порту " + getPort());
+    }
+
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : port;
+    }
+
+    /**
+     * Заменяет данные, с которыми работает сервис. Запросы в процессе обработки дорабатывают со старыми данными.
+     */
+    public void setFileService(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                workers.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                // сокет закрыт при остановке сервиса
+            } catch (IOException e) {
+                LOG.warn("Ошибка при приеме соединения: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket;
+             InputStream input = client.getInputStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String response = respond(line.trim());
+                if (response == null) break;
+                writer.write(response);
+                writer.write('\n');
+                // Пока в сокете есть следующие запросы, ответы копятся в буфере
+                if (!reader.ready() && input.available() == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // клиент закрыл соединение
+        }
+    }
+
+    /**
+     * @return ответ на запрос или null, если соединение нужно закрыть
+     */
+    String respond(String request) {
+        int space = request.indexOf(' ');
+        String command = space < 0 ? request : request.substring(0, space);
+        String argument = space < 0 ? "" : request.substring(space + 1).trim();
+        FileService data = fileService;
+
+        if ("IP".equalsIgnoreCase(command) && !argument.isEmpty()) {
+            String ip = data.getIpByDomain(argument);
+            return ip != null ? ip : NOT_FOUND;
+        }
+        if ("DOMAIN".equalsIgnoreCase(command) && !argument.isEmpty()) {
+            String domain = data.getDomainById(argument);
+            return domain != null ? domain : NOT_FOUND;
+        }
+        if ("PING".equalsIgnoreCase(command)) {
+            return "PONG";
+        }
+        if ("QUIT".equalsIgnoreCase(command)) {
+            return null;
+        }
+        return "ERROR неизвестная команда";
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Ошибка при остановке сервиса: " + e.getMessage());
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Запуск из командной строки: --daemon --config client.properties.
+     * Кроме параметров подключения, файл настроек может содержать daemon.port, daemon.refreshSeconds,
+     * snapshot - путь к двоичному снимку для быстрого перезапуска, streaming=yes - читать файл
+     * из SFTP канала прямо в память, remotePath - путь к файлу на сервере, чтобы не искать его в каталоге,
+     * metrics.file, metrics.intervalSeconds - файл для периодической записи метрик в формате Prometheus
+     * и log.level - уровень журнала (DEBUG, INFO, WARN, ERROR, OFF).
+     */
+    public static int run(String[] args) {
+        String configPath = null;
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("--config".equals(args[i])) {
+                configPath = args[i + 1];
+            }
+        }
+        if (configPath == null) {
+            System.err.println("Использование: --daemon --config <файл настроек>");
+            return 2;
+        }
+
+        Properties properties = new Properties();
+        ConnectionSettings settings;
+        int port;
+        int refreshSeconds;
+        String snapshot;
+        boolean streaming;
+        String remotePath;
+        PrometheusDump metricsDump;
+        try (InputStream in = Files.newInputStream(Paths.get(configPath))) {
+            properties.load(in);
+            settings = ConnectionSettings.fromProperties(properties);
+            port = Integer.parseInt(properties.getProperty("daemon.port", String.valueOf(DEFAULT_PORT)).trim());
+            refreshSeconds = Integer.parseInt(properties.getProperty("daemon.refreshSeconds",
+                    String.valueOf(DEFAULT_REFRESH_SECONDS)).trim());
+            snapshot = properties.getProperty("snapshot", "").trim();
+            streaming = "yes".equalsIgnoreCase(properties.getProperty("streaming", "no").trim());
+            remotePath = properties.getProperty("remotePath");
+            String logLevel = properties.getProperty("log.level");
+            if (logLevel != null && !logLevel.trim().isEmpty()) {
+                Log.setLevel(Level.parse(logLevel));
+            }
+            metricsDump = PrometheusDump.start(properties.getProperty("metrics.file"),
+                    properties.getProperty("metrics.intervalSeconds"));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ошибка настроек: " + e.getMessage());
+            return 2;
+        }
+
+        Refresher refresher = new Refresher(settings, snapshot.isEmpty() ? null : Paths.get(snapshot), streaming,
+                remotePath);
+        FileService initial = refresher.load();
+        if (initial == null) {
+            return 2;
+        }
+
+        LookupDaemon daemon = new LookupDaemon(initial, port, DEFAULT_MAX_CONNECTIONS);
+        try {
+            daemon.start();
+        } catch (IOException e) {
+            System.err.println("Не удалось открыть порт " + port + ": " + e.getMessage());
+            return 2;
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(() -> {
+            // Исключение из задачи отменило бы все следующие обновления
+            try {
+                FileService updated = refresher.load();
+                if (updated != null) {
+                    daemon.setFileService(updated);
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Ошибка обновления данных: " + e);
+            }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.shutdownNow();
+            daemon.close();
+            refresher.close();
+            if (metricsDump != null) {
+                metricsDump.close();
+            }
+        }));
+        return 0;
+    }
+
+    /**
+     * Скачивает файл с сервера по одному постоянному подключению.
+     * Если файл не изменился, повторный разбор не выполняется.
+     */
+    static class Refresher implements Closeable {
+        private final ConnectionSettings settings;
+        private final Path snapshotPath;
+        private final boolean streaming;
+        private final SftpClient sftpClient = new SftpClient();
+        private FileTime loadedModified;
+        private long loadedSize = -1;
+
+        Refresher(ConnectionSettings settings, Path snapshotPath, boolean streaming, String remotePath) {
+            this.settings = settings;
+            this.snapshotPath = snapshotPath;
+            this.streaming = streaming;
+            sftpClient.setRemotePath(remotePath);
+        }
+
+        /**
+         * @return новые данные или null, если файл не изменился или обновление не удалось
+         */
+        synchronized FileService load() {
+            if (!sftpClient.isConnected() && !sftpClient.connect(settings)) {
+                return null;
+            }
+            if (streaming) {
+                // Без локального файла об изменениях судим по размеру и времени изменения на сервере
+                if (!sftpClient.hasRemoteChanged()) {
+                    return null;
+                }
+                FileService loaded = sftpClient.loadDomains();
+                if (loaded == null) {
+                    sftpClient.disconnect();
+                }
+                return loaded;
+            }
+            String localPath = sftpClient.downloadDomainsFile();
+            if (localPath == null) {
+                // Соединение могло оборваться - переподключимся при следующем обновлении
+                sftpClient.disconnect();
+                return null;
+            }
+            try {
+                Path path = Paths.get(localPath);
+                FileTime modified = Files.getLastModifiedTime(path);
+                long size = Files.size(path);
+                if (modified.equals(loadedModified) && size == loadedSize) {
+                    return null;
+                }
+                FileService loaded = new FileService(path, null, snapshotPath);
+                // Испорченный файл не заменяет рабочие данные; размер и время не запоминаются,
+                // поэтому при следующем обновлении файл будет прочитан снова
+                if (!loaded.isLoaded()) {
+                    return null;
+                }
+                loadedModified = modified;
+                loadedSize = size;
+                return loaded;
+            } catch (IOException e) {
+                LOG.warn("Ошибка при чтении файла: " + e.getMessage());
+                return null;
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            sftpClient.disconnect();
+        }
+    }
+}
@@ -1,157 +1,605 @@
 package json;
 
-import cli.InputHandler;
+import log.Log;
+import log.Logger;
+import metrics.Metrics;
 import model.DomainIpPair;
+import model.Ipv4;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Данные файла с доменами. Потокобезопасен: чтение идет из неизменяемого снимка без блокировок,
+ * изменения выполняются по одному, применяются к копии снимка и публикуются целиком.
+ * Если задан путь к двоичному снимку, данные при повторном запуске читаются из него без разбора JSON.
+ */
 public class FileService {
-    private InputHandler inputHandler;
-    private List<DomainIpPair> data;
+    private static final Logger LOG = Log.get(FileService.class);
+
+    // Ключей в одной порции resolveAll: столько ключей и результатов одновременно держится в памяти
+    public static final int RESOLVE_CHUNK_SIZE = 64 * 1024;
+    // Меньшие части порции разрешаются одним потоком: поиск занимает 50-150 наносекунд,
+    // и на мелких частях накладные расходы fork/join превысили бы выигрыш
+    private static final int RESOLVE_SPLIT_THRESHOLD = 2048;
+
+    // Текущие данные; заменяется новым снимком после каждого изменения.
+    // null, пока данные читаются из отображенного в память двоичного снимка
+    private volatile Snapshot snapshot;
+    private volatile MappedSnapshot mapped;
+    private final Path snapshotPath;
+    // Писатели выполняются по одному, читатели эту блокировку не берут
+    private final Object writeLock = new Object();
+    // null, если данные не связаны с локальным файлом (см. read)
     private Path filePath;
+    // Журнал изменений; если не задан, файл перезаписывается при каждом изменении
+    private final Journal journal;
+    private volatile long saveCount;
+    // false, если файл не удалось прочитать или разобрать и данные пусты
+    private final boolean loaded;
 
     public FileService(Path filePath) {
-        inputHandler = new InputHandler();
-        this.filePath = filePath;
-        loadDataFromFile();
+        this(filePath, null);
     }
 
-    private void loadDataFromFile() {
-        try {
-            String jsonData = new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8);
-            this.data = parseJsonData(jsonData);
-            System.out.println("Данные успешно скачены во временный файл.");
-        } catch (IOException e) {
-            System.out.println("Ошибка при чтении файла: " + e.getMessage());
-            this.data = new ArrayList<>();
-        } catch (IllegalArgumentException e) {
-            System.out.println("Ошибка формата файла: " + e.getMessage());
-            this.data = new ArrayList<>();
+    public FileService(Path filePath, Journal journal) {
+        this(filePath, journal, null);
+    }
+
+    /**
+     * @param snapshotPath файл двоичного снимка; используется, если построен по тому же JSON файлу,
+     *                     иначе создается заново после разбора JSON. null - не использовать снимок
+     */
+    public FileService(Path filePath, Journal journal, Path snapshotPath) {
+        this.filePath = filePath;
+        this.journal = journal;
+        this.snapshotPath = snapshotPath;
+        if (snapshotPath == null) {
+            loaded = loadDataFromFile();
+        } else if (loadSnapshot()) {
+            loaded = true;
+        } else {
+            loaded = loadDataFromFile();
+            if (loaded) {
+                writeSnapshot();
+            }
+        }
+        if (journal != null) {
+            recoverFromJournal();
         }
     }
 
-    private List<DomainIpPair> parseJsonData(String jsonData) {
+    private FileService(List<DomainIpPair> pairs) {
+        this.filePath = null;
+        this.journal = null;
+        this.snapshotPath = null;
+        this.snapshot = Snapshot.of(pairs);
+        this.loaded = true;
+    }
+
+    /**
+     * Читает данные прямо из потока, например из SFTP канала, без локального файла.
+     * Изменения хранятся только в памяти; сохранить их можно через writeTo.
+     * @throws IllegalArgumentException если данные не соответствуют формату
+     */
+    public static FileService read(InputStream inputStream) throws IOException {
         List<DomainIpPair> pairs = new ArrayList<>();
-        jsonData = jsonData.replaceAll("\\s+", ""); // Убираем все пробелы и переносы
+        long started = System.nanoTime();
+        new JsonAddressReader(inputStream).readAddresses(pairs::add);
+        Metrics.PARSE.recordSince(started);
+        return new FileService(pairs);
+    }
+
+    /**
+     * Записывает текущие данные в поток в формате файла с доменами; поток не закрывается
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        new JsonAddressWriter(outputStream).writeAddresses(data().pairs());
+    }
 
-        if (!jsonData.contains("\"addresses\":[")) {
-            throw new IllegalArgumentException("Неверный формат JSON: отсутствует массив addresses");
+    /**
+     * @return false, если файл не удалось прочитать или разобрать
+     */
+    private boolean loadDataFromFile() {
+        List<DomainIpPair> data;
+        boolean loaded = false;
+        try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+            data = parseJsonData(reader);
+            loaded = true;
+            LOG.info("Данные успешно скачены во временный файл.");
+        } catch (IOException e) {
+            LOG.error("Ошибка при чтении файла: " + e.getMessage());
+            data = new ArrayList<>();
+        } catch (IllegalArgumentException e) {
+            LOG.error("Ошибка формата файла: " + e.getMessage());
+            data = new ArrayList<>();
         }
+        snapshot = Snapshot.of(data);
+        return loaded;
+    }
 
-        // Извлекаем содержимое массива addresses
-        String addressesContent = jsonData.split("\"addresses\":\\[")[1].split("\\]")[0];
+    private boolean loadSnapshot() {
+        try {
+            mapped = MappedSnapshot.open(snapshotPath, MappedSnapshot.hash(filePath));
+        } catch (IOException e) {
+            LOG.warn("Ошибка чтения снимка: " + e.getMessage());
+            return false;
+        }
+        if (mapped == null) {
+            return false;
+        }
+        LOG.info("Данные загружены из снимка " + snapshotPath);
+        return true;
+    }
 
-        // Разбиваем на отдельные объекты
-        String[] entries = addressesContent.split("\\},\\{");
+    // Снимок строится по текущему содержимому JSON файла; ошибка записи снимка не мешает работе
+    private void writeSnapshot() {
+        try {
+            MappedSnapshot.write(snapshotPath, data(), MappedSnapshot.hash(filePath));
+        } catch (IOException e) {
+            LOG.warn("Ошибка записи снимка: " + e.getMessage());
+        }
+    }
 
-        for (String entry : entries) {
-            entry = entry.replace("{", "").replace("}", "");
-            String domain = null;
-            String ip = null;
+    /**
+     * Данные в памяти. Если они читаются из двоичного снимка, переносит их в память при первом обращении.
+     */
+    private Snapshot data() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (writeLock) {
+            if (snapshot == null) {
+                snapshot = mapped.materialize();
+                mapped = null;
+            }
+            return snapshot;
+        }
+    }
 
-            String[] fields = entry.split(",");
-            for (String field : fields) {
-                if (field.startsWith("\"domain\":")) {
-                    domain = field.split(":")[1].replace("\"", "");
-                } else if (field.startsWith("\"ip\":")) {
-                    ip = field.split(":")[1].replace("\"", "");
+    /**
+     * Применяет изменения, оставшиеся в журнале после аварийного завершения,
+     * и сразу переносит их в основной файл
+     */
+    private void recoverFromJournal() {
+        Snapshot next = data().copy();
+        try {
+            int replayed = journal.replay(new Journal.Listener() {
+                @Override
+                public void added(DomainIpPair pair) {
+                    if (!next.containsDomain(pair.getDomain()) && !next.containsIp(pair.getIpAddress())) {
+                        next.insert(pair);
+                    }
                 }
-            }
 
-            if (domain != null && ip != null) {
-                pairs.add(new DomainIpPair(domain, ip));
-            } else {
-                throw new IllegalArgumentException("Некорректная запись в JSON: " + entry);
+                @Override
+                public void removed(DomainIpPair pair) {
+                    DomainIpPair existing = next.findByDomain(pair.getDomain());
+                    if (existing != null && existing.getIpAddress() == pair.getIpAddress()) {
+                        next.delete(existing);
+                    }
+                }
+            });
+            if (replayed > 0) {
+                snapshot = next.freeze();
+                LOG.info("Восстановлено изменений из журнала: " + replayed);
+                compact();
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка чтения журнала: " + e.getMessage(), e);
         }
+    }
+
+    private List<DomainIpPair> parseJsonData(Reader reader) throws IOException {
+        List<DomainIpPair> pairs = new ArrayList<>();
+        long started = System.nanoTime();
+        new JsonAddressReader(reader).readAddresses(pairs::add);
+        Metrics.PARSE.recordSince(started);
         return pairs;
     }
 
+    /**
+     * Все пары, отсортированные по домену. Список не копируется и не изменяется:
+     * последующие изменения данных в нем не отражаются.
+     */
     public List<DomainIpPair> getDomainIpPairs() {
-        return data.stream()
-                .sorted(Comparator.comparing(DomainIpPair::getDomain))
-                .collect(Collectors.toList());
+        return data().sorted();
+    }
+
+    /**
+     * Страница отсортированного по домену списка
+     * @param offset номер первой пары, начиная с 0
+     * @param limit максимальное количество пар на странице
+     */
+    public List<DomainIpPair> getDomainIpPairs(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Смещение и размер страницы не могут быть отрицательными");
+        }
+        List<DomainIpPair> sorted = data().sorted();
+        int from = Math.min(offset, sorted.size());
+        return sorted.subList(from, (int) Math.min((long) from + limit, sorted.size()));
+    }
+
+    /**
+     * Пары, домен которых начинается с prefix (с учетом регистра), отсортированные по домену
+     */
+    public List<DomainIpPair> getDomainIpPairsByPrefix(String prefix) {
+        return data().sortedByPrefix(prefix);
     }
 
 
     public String getIpByDomain(String domain) {
-        for (DomainIpPair pair : data) {
-            if (pair.getDomain().equals(domain)) {
-                return pair.getIp();
-            }
+        MappedSnapshot file = mapped;
+        if (file != null) {
+            long address = file.findIpByDomain(domain);
+            return counted(address != Ipv4.INVALID ? Ipv4.format((int) address) : null);
         }
-        return null;
+        DomainIpPair pair = data().findByDomain(domain);
+        return counted(pair != null ? pair.getIp() : null);
     }
 
     public String getDomainById(String ip) {
-        for (DomainIpPair pair : data) {
-            if (pair.getIp().equals(ip)) {
-                return pair.getDomain();
+        MappedSnapshot file = mapped;
+        if (file != null) {
+            long address = Ipv4.tryParse(ip);
+            return counted(address != Ipv4.INVALID ? file.findDomainByIp((int) address) : null);
+        }
+        DomainIpPair pair = findByIp(data(), ip);
+        return counted(pair != null ? pair.getDomain() : null);
+    }
+
+    // Поиск слишком быстрый, чтобы измерять его время: считаются только попадания и промахи
+    private static String counted(String found) {
+        (found != null ? Metrics.LOOKUP_HITS : Metrics.LOOKUP_MISSES).increment();
+        return found;
+    }
+
+    /**
+     * Разрешает поток ключей: для IPv4 адреса ищется домен, для остальных строк - IP-адрес.
+     * Ключи читаются порциями по RESOLVE_CHUNK_SIZE, каждая порция разрешается параллельно
+     * в общем ForkJoinPool, и результаты отдаются в порядке ключей. В памяти одновременно
+     * находится одна порция, поэтому входной поток может быть сколь угодно длинным.
+     * @return последовательный ленивый поток результатов; его закрытие закрывает keys
+     */
+    public Stream<Resolution> resolveAll(Stream<String> keys) {
+        Iterator<String> source = keys.iterator();
+        Iterator<Resolution> results = new Iterator<Resolution>() {
+            private final String[] chunk = new String[RESOLVE_CHUNK_SIZE];
+            private final String[] values = new String[RESOLVE_CHUNK_SIZE];
+            private int size;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position < size) {
+                    return true;
+                }
+                size = 0;
+                position = 0;
+                while (size < chunk.length && source.hasNext()) {
+                    chunk[size++] = source.next();
+                }
+                if (size > 0) {
+                    ForkJoinPool.commonPool().invoke(new ResolveTask(chunk, values, 0, size));
+                }
+                return size > 0;
+            }
+
+            @Override
+            public Resolution next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Resolution resolution = new Resolution(chunk[position], values[position]);
+                chunk[position] = null;
+                values[position] = null;
+                position++;
+                return resolution;
             }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(keys::close);
+    }
+
+    private final class ResolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] keys;
+        private final String[] values;
+        private final int from;
+        private final int to;
+
+        ResolveTask(String[] keys, String[] values, int from, int to) {
+            this.keys = keys;
+            this.values = values;
+            this.from = from;
+            this.to = to;
         }
-        return null;
+
+        @Override
+        protected void compute() {
+            if (to - from <= RESOLVE_SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    values[i] = resolve(keys[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ResolveTask(keys, values, from, middle), new ResolveTask(keys, values, middle, to));
+        }
+    }
+
+    private String resolve(String key) {
+        long address = Ipv4.tryParse(key);
+        if (address == Ipv4.INVALID) {
+            return getIpByDomain(key);
+        }
+        MappedSnapshot file = mapped;
+        if (file != null) {
+            return counted(file.findDomainByIp((int) address));
+        }
+        DomainIpPair pair = data().findByIp((int) address);
+        return counted(pair != null ? pair.getDomain() : null);
+    }
+
+    private static DomainIpPair findByIp(Snapshot data, String ip) {
+        long address = Ipv4.tryParse(ip);
+        return address != Ipv4.INVALID ? data.findByIp((int) address) : null;
     }
 
 
     public boolean addDomainIpPair(String domain, String ip) {
-        if (!inputHandler.isValidIPv4(ip)) {
+        long address = Ipv4.tryParse(ip);
+        if (address == Ipv4.INVALID) {
             throw new IllegalArgumentException("Некорректный формат IPv4: " + ip);
         }
 
-        // Проверяем существование домена и IP в одном проходе
-        for (DomainIpPair p : data) {
-            if (p.getDomain().equalsIgnoreCase(domain)) {
-                System.out.println("Ошибка: Домен уже существует: " + domain);
+        synchronized (writeLock) {
+            Snapshot current = data();
+            if (current.containsDomain(domain)) {
+                LOG.debug(() -> "Домен уже существует: " + domain);
                 return false;
             }
-            if (p.getIp().equals(ip)) {
-                System.out.println("Ошибка: IP-адрес уже существует: " + ip);
+            DomainIpPair pair = new DomainIpPair(domain, (int) address);
+            if (current.containsIp(pair.getIpAddress())) {
+                LOG.debug(() -> "IP-адрес уже существует: " + ip);
                 return false;
             }
+
+            Snapshot next = current.copy();
+            next.insert(pair);
+            snapshot = next.freeze();
+            persist(pair, true);
+            return true;
         }
+    }
 
-        // Если дошли до этой точки, значит дубликатов нет
-        data.add(new DomainIpPair(domain, ip));
-        saveToFile();
-        return true;
+    /**
+     * Применяет пакет изменений целиком или не применяет ни одного.
+     * Файл сохраняется один раз на весь пакет, снимок копируется тоже один раз.
+     * @return количество примененных изменений
+     * @throws IllegalArgumentException если хотя бы одно изменение недопустимо; данные при этом не меняются
+     */
+    public int applyBatch(List<Mutation> mutations) {
+        synchronized (writeLock) {
+            // Изменения применяются к копии: при ошибке она просто отбрасывается
+            Snapshot next = data().copy();
+            List<Change> changes = new ArrayList<>(mutations.size());
+            for (int i = 0; i < mutations.size(); i++) {
+                Mutation mutation = mutations.get(i);
+                String error = mutation.getType() == Mutation.Type.ADD
+                        ? tryAdd(next, mutation.getDomain(), mutation.getIp(), changes)
+                        : tryRemove(next, mutation.getDomain(), changes);
+                if (error != null) {
+                    throw new IllegalArgumentException("Пакет отклонен, операция " + (i + 1)
+                            + " (" + mutation + "): " + error);
+                }
+            }
+            if (changes.isEmpty()) {
+                return 0;
+            }
+            snapshot = next.freeze();
+
+            if (journal == null) {
+                saveToFile();
+            } else {
+                try {
+                    for (Change change : changes) {
+                        if (change.added) {
+                            journal.appendAdd(change.pair);
+                        } else {
+                            journal.appendRemove(change.pair);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Ошибка записи в журнал: " + e.getMessage(), e);
+                }
+                if (journal.needsCompaction()) {
+                    compact();
+                }
+            }
+            return changes.size();
+        }
     }
-    private void saveToFile() {
-        StringBuilder json = new StringBuilder("{\n  \"addresses\": [\n");
 
-        for (int i = 0; i < data.size(); i++) {
-            DomainIpPair pair = data.get(i);
-            json.append(String.format("    {\"domain\": \"%s\", \"ip\": \"%s\"}",
-                    pair.getDomain(), pair.getIp()));
-            if (i < data.size() - 1) json.append(",\n");
+    private static String tryAdd(Snapshot next, String domain, String ip, List<Change> changes) {
+        long address = Ipv4.tryParse(ip);
+        if (address == Ipv4.INVALID) {
+            return "некорректный формат IPv4: " + ip;
+        }
+        if (next.containsDomain(domain)) {
+            return "домен уже существует: " + domain;
+        }
+        DomainIpPair pair = new DomainIpPair(domain, (int) address);
+        if (next.containsIp(pair.getIpAddress())) {
+            return "IP-адрес уже существует: " + ip;
+        }
+        next.insert(pair);
+        changes.add(new Change(pair, true));
+        return null;
+    }
+
+    private static String tryRemove(Snapshot next, String domainOrIp, List<Change> changes) {
+        DomainIpPair pair = next.findByDomain(domainOrIp);
+        if (pair == null) {
+            pair = findByIp(next, domainOrIp);
+        }
+        if (pair == null) {
+            return "пара не найдена: " + domainOrIp;
+        }
+        next.delete(pair);
+        changes.add(new Change(pair, false));
+        return null;
+    }
+
+    private static class Change {
+        final DomainIpPair pair;
+        final boolean added;
+
+        Change(DomainIpPair pair, boolean added) {
+            this.pair = pair;
+            this.added = added;
         }
+    }
 
-        json.append("\n  ]\n}");
+    /**
+     * Сохраняет изменение: дописывает его в журнал или перезаписывает файл целиком
+     */
+    private void persist(DomainIpPair pair, boolean added) {
+        if (journal == null) {
+            saveToFile();
+            return;
+        }
+        try {
+            if (added) {
+                journal.appendAdd(pair);
+            } else {
+                journal.appendRemove(pair);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка записи в журнал: " + e.getMessage(), e);
+        }
+        if (journal.needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Переносит накопленные в журнале изменения в основной файл и очищает журнал
+     */
+    public void compact() {
+        synchronized (writeLock) {
+            if (journal == null || journal.isEmpty()) return;
+            saveToFile();
+            try {
+                journal.reset();
+            } catch (IOException e) {
+                throw new RuntimeException("Ошибка очистки журнала: " + e.getMessage(), e);
+            }
+        }
+    }
 
+    /**
+     * Уплотняет журнал и обновляет двоичный снимок перед завершением работы
+     */
+    public void close() {
+        synchronized (writeLock) {
+            compact();
+            // Следующий запуск с тем же файлом прочитает данные из снимка
+            if (snapshotPath != null && saveCount > 0) {
+                writeSnapshot();
+            }
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    LOG.warn("Ошибка закрытия журнала: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Прочитаны ли данные. false - файл не удалось прочитать или разобрать, и вместо его данных
+     * используется пустой список; такие данные не должны заменять уже загруженные
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Количество перезаписей основного файла (для данных без файла - количество изменений);
+     * позволяет понять, нужно ли выгружать файл на сервер
+     */
+    public long getSaveCount() {
+        return saveCount;
+    }
+
+    // Вызывается под writeLock: сохраняется последний опубликованный снимок
+    private void saveToFile() {
+        if (filePath == null) {
+            // Данные без файла: счетчик показывает, что есть изменения для выгрузки
+            saveCount++;
+            return;
+        }
+        // Файл пишется рядом и заменяется целиком: при сбое остается прежняя версия, а не половина новой
+        Path temp = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        long started = System.nanoTime();
         try {
-            Files.write(filePath, json.toString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                new JsonAddressWriter(Channels.newOutputStream(channel)).writeAddresses(data().pairs());
+            }
+            Files.move(temp, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Metrics.SAVE.recordSince(started);
+            saveCount++;
+            LOG.debug(() -> "Файл " + filePath + " сохранен за " + (System.nanoTime() - started) / 1_000_000 + " мс");
         } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // исходная ошибка важнее
+            }
             throw new RuntimeException("Ошибка сохранения файла: " + e.getMessage(), e);
         }
     }
 
 
     public boolean removeDomainIpPair(String domainOrIp) {
-        Iterator<DomainIpPair> iterator = data.iterator();
-        while (iterator.hasNext()) {
-            DomainIpPair pair = iterator.next();
-            if (pair.getDomain().equals(domainOrIp) || pair.getIp().equals(domainOrIp)) {
-                iterator.remove();
-                saveToFile();
-                return true;
+        synchronized (writeLock) {
+            Snapshot current = data();
+            DomainIpPair pair = current.findByDomain(domainOrIp);
+            if (pair == null) {
+                pair = findByIp(current, domainOrIp);
+            }
+            if (pair == null) {
+                return false;
             }
+
+            Snapshot next = current.copy();
+            next.delete(pair);
+            snapshot = next.freeze();
+            persist(pair, false);
+            return true;
         }
-        return false;
     }
 }
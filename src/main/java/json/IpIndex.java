@@ -0,0 +1,153 @@
+package json;
+
+import model.DomainIpPair;
+
+/**
+ * Хеш-таблица IPv4 адрес -> пара с открытой адресацией.
+ * Ключи хранятся в массиве int без упаковки в Integer, поиск не создает объектов.
+ */
+class IpIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private DomainIpPair[] values;
+    private int size;
+    private int mask;
+
+    IpIndex(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // Заполнение таблицы не превышает 50%
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Независимая копия таблицы
+     */
+    IpIndex(IpIndex other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+        mask = other.mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new DomainIpPair[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(int ip) {
+        int h = ip * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    DomainIpPair get(int ip) {
+        int i = slot(ip);
+        DomainIpPair value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == ip) return value;
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    boolean containsKey(int ip) {
+        return get(ip) != null;
+    }
+
+    /**
+     * Добавляет пару, если адрес еще не занят
+     * @return пара, уже связанная с адресом, или null если пара добавлена
+     */
+    DomainIpPair putIfAbsent(DomainIpPair pair) {
+        int ip = pair.getIpAddress();
+        int i = slot(ip);
+        DomainIpPair value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == ip) return value;
+            i = (i + 1) & mask;
+        }
+        keys[i] = ip;
+        values[i] = pair;
+        if (++size * 2 > values.length) {
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Связывает адрес с парой, заменяя прежнюю
+     */
+    void put(int ip, DomainIpPair value) {
+        int i = slot(ip);
+        while (values[i] != null) {
+            if (keys[i] == ip) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = ip;
+        values[i] = value;
+        if (++size * 2 > values.length) {
+            resize(values.length << 1);
+        }
+    }
+
+    /**
+     * Удаляет адрес, если он связан с переданной парой
+     */
+    boolean remove(DomainIpPair pair) {
+        int ip = pair.getIpAddress();
+        int i = slot(ip);
+        DomainIpPair value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == ip) {
+                if (value != pair) return false;
+                deleteSlot(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    // Сдвигает следующие элементы цепочки на место удаленного, чтобы не оставлять "дыр"
+    private void deleteSlot(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            DomainIpPair value = values[i];
+            if (value == null) break;
+            int home = slot(keys[i]);
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = keys[i];
+                values[hole] = value;
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        DomainIpPair[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            DomainIpPair value = oldValues[j];
+            if (value == null) continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = value;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package json;
+
+import model.DomainIpPair;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Журнал изменений, дописываемый в конец файла.
+ * Каждая запись - операция добавления или удаления пары. Журнал переносится в основной
+ * JSON файл при уплотнении, а после сбоя проигрывается заново при загрузке.
+ */
+public class Journal implements Closeable {
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+    private static final byte ADD = 'A';
+    private static final byte REMOVE = 'R';
+
+    private final Path path;
+    private final int compactThreshold;
+    private DataOutputStream out;
+    private int records;
+
+    public Journal(Path path) {
+        this(path, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public Journal(Path path, int compactThreshold) {
+        if (compactThreshold < 1) {
+            throw new IllegalArgumentException("Порог уплотнения должен быть положительным: " + compactThreshold);
+        }
+        this.path = path;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Обработчик записей журнала при восстановлении
+     */
+    public interface Listener {
+        void added(DomainIpPair pair);
+
+        void removed(DomainIpPair pair);
+    }
+
+    public void appendAdd(DomainIpPair pair) throws IOException {
+        append(ADD, pair);
+    }
+
+    public void appendRemove(DomainIpPair pair) throws IOException {
+        append(REMOVE, pair);
+    }
+
+    private void append(byte operation, DomainIpPair pair) throws IOException {
+        if (out == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        }
+        out.writeByte(operation);
+        out.writeInt(pair.getIpAddress());
+        out.writeUTF(pair.getDomain());
+        // Запись должна попасть в файл до того, как операция будет считаться выполненной
+        out.flush();
+        records++;
+    }
+
+    /**
+     * Проигрывает записи журнала, оставшиеся после предыдущего запуска.
+     * Оборванная последняя запись (сбой во время записи) игнорируется.
+     * @return количество проигранных записей
+     */
+    public int replay(Listener listener) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int operation = in.read();
+                if (operation == -1) break;
+                DomainIpPair pair;
+                try {
+                    int ip = in.readInt();
+                    pair = new DomainIpPair(in.readUTF(), ip);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (operation == ADD) {
+                    listener.added(pair);
+                } else if (operation == REMOVE) {
+                    listener.removed(pair);
+                } else {
+                    throw new IOException("Поврежденная запись журнала: " + path);
+                }
+                replayed++;
+            }
+        }
+        records = replayed;
+        return replayed;
+    }
+
+    public boolean needsCompaction() {
+        return records >= compactThreshold;
+    }
+
+    public boolean isEmpty() {
+        return records == 0;
+    }
+
+    /**
+     * Очищает журнал после переноса изменений в основной файл
+     */
+    public void reset() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+        records = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
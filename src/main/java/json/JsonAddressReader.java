@@ -0,0 +1,313 @@
+package json;
+
+import log.Log;
+import log.Logger;
+import model.DomainIpPair;
+import model.Ipv4;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый разбор JSON файла с доменами.
+ * Читает массив addresses за один проход, не загружая документ в память целиком,
+ * и передает каждую найденную пару обработчику. Записи без домена или с некорректным IP
+ * пропускаются с предупреждением, чтобы одна испорченная строка не лишала клиента остальных данных.
+ */
+public class JsonAddressReader {
+    private static final Logger LOG = Log.get(JsonAddressReader.class);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long offset;
+    // Общий буфер для ключей и строковых значений, переиспользуется между записями
+    private final StringBuilder text = new StringBuilder(64);
+
+    public JsonAddressReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public JsonAddressReader(InputStream inputStream) {
+        this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает документ и передает пары из массива addresses обработчику
+     * @throws IllegalArgumentException если документ не соответствует ожидаемому формату
+     */
+    public void readAddresses(Consumer<DomainIpPair> consumer) throws IOException {
+        boolean addressesFound = false;
+
+        expect('{');
+        if (peekToken() == '}') {
+            read();
+        } else {
+            while (true) {
+                readString();
+                expect(':');
+                if (textEquals("addresses")) {
+                    readAddressArray(consumer);
+                    addressesFound = true;
+                } else {
+                    skipValue();
+                }
+                if (!nextMember('}')) break;
+            }
+        }
+
+        if (peekToken() != EOF) {
+            throw formatError("лишние данные после конца документа");
+        }
+        if (!addressesFound) {
+            throw new IllegalArgumentException("Неверный формат JSON: отсутствует массив addresses");
+        }
+    }
+
+    private void readAddressArray(Consumer<DomainIpPair> consumer) throws IOException {
+        expect('[');
+        if (peekToken() == ']') {
+            read();
+            return;
+        }
+        do {
+            DomainIpPair pair = readAddress();
+            if (pair != null) {
+                consumer.accept(pair);
+            }
+        } while (nextMember(']'));
+    }
+
+    /**
+     * @return пара или null, если запись некорректна и пропущена
+     */
+    private DomainIpPair readAddress() throws IOException {
+        long start = offset + position;
+        String domain = null;
+        long ip = Ipv4.INVALID;
+        String invalidIp = null;
+
+        expect('{');
+        if (peekToken() == '}') {
+            read();
+        } else {
+            do {
+                readString();
+                expect(':');
+                if (textEquals("domain")) {
+                    domain = readStringValue();
+                } else if (textEquals("ip")) {
+                    // Адрес разбирается прямо из буфера, строка для него не создается
+                    readStringText();
+                    ip = Ipv4.tryParse(text);
+                    if (ip == Ipv4.INVALID) {
+                        invalidIp = text.toString();
+                    }
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+
+        if (invalidIp != null) {
+            LOG.warn("Запись в позиции " + start + " пропущена, некорректный формат IPv4: " + invalidIp);
+            return null;
+        }
+        if (domain == null || ip == Ipv4.INVALID) {
+            LOG.warn("Запись в позиции " + start + " пропущена, нет домена или IP");
+            return null;
+        }
+        return new DomainIpPair(domain, (int) ip);
+    }
+
+    /**
+     * Переходит к следующему элементу объекта или массива
+     * @return true если за запятой следует еще один элемент, false если встречен закрывающий символ
+     */
+    private boolean nextMember(char close) throws IOException {
+        int c = readToken();
+        if (c == ',') return true;
+        if (c == close) return false;
+        throw formatError("ожидался символ ',' или '" + close + "'");
+    }
+
+    private String readStringValue() throws IOException {
+        readStringText();
+        return text.toString();
+    }
+
+    // Читает строковое значение в буфер text
+    private void readStringText() throws IOException {
+        if (peekToken() != '"') {
+            throw formatError("ожидалось строковое значение");
+        }
+        readString();
+    }
+
+    /**
+     * Пропускает значение любого типа, включая вложенные объекты и массивы
+     */
+    private void skipValue() throws IOException {
+        int c = peekToken();
+        switch (c) {
+            case '"':
+                readString();
+                break;
+            case '{':
+                read();
+                if (peekToken() == '}') {
+                    read();
+                    break;
+                }
+                do {
+                    readString();
+                    expect(':');
+                    skipValue();
+                } while (nextMember('}'));
+                break;
+            case '[':
+                read();
+                if (peekToken() == ']') {
+                    read();
+                    break;
+                }
+                do {
+                    skipValue();
+                } while (nextMember(']'));
+                break;
+            default:
+                skipLiteral();
+        }
+    }
+
+    // Числа, true, false и null
+    private void skipLiteral() throws IOException {
+        int length = 0;
+        while (true) {
+            int c = peek();
+            if (c == EOF || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) break;
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'z') && c != '-' && c != '+' && c != '.' && c != 'E') {
+                throw formatError("недопустимый символ '" + (char) c + "'");
+            }
+            read();
+            length++;
+        }
+        if (length == 0) {
+            throw formatError("ожидалось значение");
+        }
+    }
+
+    /**
+     * Читает строку в кавычках в общий буфер text с обработкой escape-последовательностей
+     */
+    private void readString() throws IOException {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == EOF) throw formatError("незакрытая строка");
+            if (c == '"') return;
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) escaped);
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    text.append(readUnicodeEscape());
+                    break;
+                default:
+                    throw formatError("неверная escape-последовательность");
+            }
+        }
+    }
+
+    private char readUnicodeEscape() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) throw formatError("неверная escape-последовательность \\u");
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    private boolean textEquals(String expected) {
+        if (text.length() != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (readToken() != expected) {
+            throw formatError("ожидался символ '" + expected + "'");
+        }
+    }
+
+    private int readToken() throws IOException {
+        int c = peekToken();
+        if (c != EOF) position++;
+        return c;
+    }
+
+    // Следующий значимый символ без учета пробелов и переносов
+    private int peekToken() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == EOF || !Character.isWhitespace(c)) return c;
+            position++;
+        }
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) position++;
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            offset += limit;
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position];
+    }
+
+    private IllegalArgumentException formatError(String reason) {
+        return new IllegalArgumentException("Неверный формат JSON: " + reason + " в позиции " + (offset + position));
+    }
+}
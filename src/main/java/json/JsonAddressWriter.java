@@ -0,0 +1,122 @@
+package json;
+
+import model.DomainIpPair;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Потоковая запись файла с доменами в том же формате, что и прежде:
+ * <pre>
+ * {
+ *   "addresses": [
+ *     {"domain": "example.com", "ip": "192.168.1.1"},
+ *     {"domain": "test.com", "ip": "10.0.0.1"}
+ *   ]
+ * }
+ * </pre>
+ * Записи пишутся по одной, без сборки документа в памяти и без промежуточных строк для адресов.
+ */
+public class JsonAddressWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer writer;
+    // Собственный буфер: посимвольная запись в Writer берет блокировку на каждый символ
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+
+    public JsonAddressWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public JsonAddressWriter(OutputStream outputStream) {
+        this(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Записывает документ целиком и сбрасывает буфер; поток не закрывается
+     */
+    public void writeAddresses(List<DomainIpPair> pairs) throws IOException {
+        write("{\n  \"addresses\": [\n");
+        for (int i = 0; i < pairs.size(); i++) {
+            DomainIpPair pair = pairs.get(i);
+            write("    {\"domain\": \"");
+            writeEscaped(pair.getDomain());
+            write("\", \"ip\": \"");
+            writeIp(pair.getIpAddress());
+            write("\"}");
+            if (i < pairs.size() - 1) write(",\n");
+        }
+        write("\n  ]\n}");
+        flushBuffer();
+        writer.flush();
+    }
+
+    // Экранирует только то, что требует JSON; остальные символы, включая не-ASCII, пишутся как есть
+    private void writeEscaped(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    write("\\\"");
+                    break;
+                case '\\':
+                    write("\\\\");
+                    break;
+                case '\n':
+                    write("\\n");
+                    break;
+                case '\r':
+                    write("\\r");
+                    break;
+                case '\t':
+                    write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        write("\\u00");
+                        write(HEX[c >> 4]);
+                        write(HEX[c & 0xF]);
+                    } else {
+                        write(c);
+                    }
+            }
+        }
+    }
+
+    private void writeIp(int ip) throws IOException {
+        writeOctet(ip >>> 24);
+        write('.');
+        writeOctet((ip >>> 16) & 0xFF);
+        write('.');
+        writeOctet((ip >>> 8) & 0xFF);
+        write('.');
+        writeOctet(ip & 0xFF);
+    }
+
+    private void writeOctet(int value) throws IOException {
+        if (value >= 100) write((char) ('0' + value / 100));
+        if (value >= 10) write((char) ('0' + value / 10 % 10));
+        write((char) ('0' + value % 10));
+    }
+
+    private void write(char c) throws IOException {
+        if (position == BUFFER_SIZE) flushBuffer();
+        buffer[position++] = c;
+    }
+
+    private void write(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+    }
+}
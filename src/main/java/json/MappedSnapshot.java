@@ -0,0 +1,276 @@
+package json;
+
+import model.DomainIpPair;
+import model.Ipv4;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Двоичный снимок данных, который читается через FileChannel.map без разбора:
+ * поиск по домену и IP выполняется прямо по отображенному в память файлу.
+ * <pre>
+ * заголовок   magic, версия, SHA-256 исходного JSON, число записей, размеры таблиц
+ * ips         int[count]        - адреса в порядке файла
+ * starts      int[count + 1]    - начало домена записи в таблице символов
+ * order       int[count]        - номера записей, отсортированные по домену
+ * byDomain    int[domainSlots]  - хеш-таблица домен -> номер записи + 1 (0 - пусто)
+ * byIp        int[ipSlots]      - хеш-таблица IP -> номер записи + 1
+ * chars       char[]            - домены подряд в UTF-16
+ * </pre>
+ * Снимок действителен, только пока совпадает хеш исходного JSON файла.
+ */
+final class MappedSnapshot {
+    private static final int MAGIC = 0x44495053; // "DIPS"
+    private static final int VERSION = 2;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER = 4 + 4 + HASH_LENGTH + 4 + 4 + 4 + 4;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int domainMask;
+    private final int ipMask;
+    private final int ipsAt;
+    private final int startsAt;
+    private final int orderAt;
+    private final int byDomainAt;
+    private final int byIpAt;
+    private final int charsAt;
+
+    private MappedSnapshot(ByteBuffer buffer, int count, int domainSlots, int ipSlots) {
+        this.buffer = buffer;
+        this.count = count;
+        this.domainMask = domainSlots - 1;
+        this.ipMask = ipSlots - 1;
+        this.ipsAt = HEADER;
+        this.startsAt = ipsAt + count * 4;
+        this.orderAt = startsAt + (count + 1) * 4;
+        this.byDomainAt = orderAt + count * 4;
+        this.byIpAt = byDomainAt + domainSlots * 4;
+        this.charsAt = byIpAt + ipSlots * 4;
+    }
+
+    /**
+     * Отображает снимок в память
+     * @return снимок или null, если файла нет, он поврежден или построен по другому JSON файлу
+     */
+    static MappedSnapshot open(Path file, byte[] sourceHash) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) return null;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return null;
+        byte[] hash = new byte[HASH_LENGTH];
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            hash[i] = buffer.get(8 + i);
+        }
+        if (!Arrays.equals(hash, sourceHash)) return null;
+
+        int count = buffer.getInt(8 + HASH_LENGTH);
+        int domainSlots = buffer.getInt(12 + HASH_LENGTH);
+        int ipSlots = buffer.getInt(16 + HASH_LENGTH);
+        int chars = buffer.getInt(20 + HASH_LENGTH);
+        if (count < 0 || chars < 0 || Integer.bitCount(domainSlots) != 1 || Integer.bitCount(ipSlots) != 1) return null;
+        long expected = HEADER + 4L * (count * 3L + 1 + domainSlots + ipSlots) + 2L * chars;
+        if (expected != buffer.capacity()) return null;
+        return new MappedSnapshot(buffer, count, domainSlots, ipSlots);
+    }
+
+    /**
+     * Записывает снимок во временный файл рядом с целевым и заменяет целевой файл
+     */
+    static void write(Path file, Snapshot snapshot, byte[] sourceHash) throws IOException {
+        List<DomainIpPair> pairs = snapshot.pairs();
+        int count = pairs.size();
+        int domainSlots = slots(count);
+        int ipSlots = slots(count);
+        long chars = 0;
+        for (DomainIpPair pair : pairs) {
+            chars += pair.getDomain().length();
+        }
+        long size = HEADER + 4L * (count * 3L + 1 + domainSlots + ipSlots) + 2L * chars;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Слишком много данных для снимка: " + size + " байт");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).put(sourceHash)
+                .putInt(count).putInt(domainSlots).putInt(ipSlots).putInt((int) chars);
+        MappedSnapshot layout = new MappedSnapshot(buffer, count, domainSlots, ipSlots);
+
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            DomainIpPair pair = pairs.get(i);
+            String domain = pair.getDomain();
+            buffer.putInt(layout.ipsAt + i * 4, pair.getIpAddress());
+            buffer.putInt(layout.startsAt + i * 4, start);
+            for (int c = 0; c < domain.length(); c++) {
+                buffer.putChar(layout.charsAt + (start + c) * 2, domain.charAt(c));
+            }
+            start += domain.length();
+            // Индекс доменов точный, поэтому в него попадает первая запись с каждым доменом - ее же
+            // находит findByDomain в памяти; индекс адресов совпадает с индексом в памяти
+            if (layout.findIpByDomain(domain) == Ipv4.INVALID) {
+                layout.insert(layout.byDomainAt, layout.domainMask, domainHash(domain), i);
+            }
+            if (snapshot.isIndexedByIp(pair)) {
+                layout.insert(layout.byIpAt, layout.ipMask, ipHash(pair.getIpAddress()), i);
+            }
+        }
+        buffer.putInt(layout.startsAt + count * 4, start);
+
+        // Номер записи по объекту пары: в отсортированном списке те же объекты, что и в pairs
+        Map<DomainIpPair, Integer> entries = new IdentityHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.put(pairs.get(i), i);
+        }
+        List<DomainIpPair> sorted = snapshot.sorted();
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(layout.orderAt + i * 4, entries.get(sorted.get(i)));
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Заполнение хеш-таблиц не превышает 50%, как в IpIndex
+    private static int slots(int count) {
+        int capacity = 16;
+        while (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void insert(int tableAt, int mask, int hash, int entry) {
+        int i = hash & mask;
+        while (buffer.getInt(tableAt + i * 4) != 0) {
+            i = (i + 1) & mask;
+        }
+        buffer.putInt(tableAt + i * 4, entry + 1);
+    }
+
+    private static int domainHash(String domain) {
+        int h = domain.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int ipHash(int ip) {
+        int h = ip * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Ищет адрес по точному совпадению домена, не создавая объектов
+     * @return адрес как беззнаковое число или Ipv4.INVALID
+     */
+    long findIpByDomain(String domain) {
+        int i = domainHash(domain) & domainMask;
+        int entry;
+        while ((entry = buffer.getInt(byDomainAt + i * 4)) != 0) {
+            if (domainEquals(entry - 1, domain)) {
+                return buffer.getInt(ipsAt + (entry - 1) * 4) & 0xFFFFFFFFL;
+            }
+            i = (i + 1) & domainMask;
+        }
+        return Ipv4.INVALID;
+    }
+
+    /**
+     * @return домен, связанный с адресом, или null
+     */
+    String findDomainByIp(int ip) {
+        int i = ipHash(ip) & ipMask;
+        int entry;
+        while ((entry = buffer.getInt(byIpAt + i * 4)) != 0) {
+            if (buffer.getInt(ipsAt + (entry - 1) * 4) == ip) {
+                return domain(entry - 1);
+            }
+            i = (i + 1) & ipMask;
+        }
+        return null;
+    }
+
+    private boolean domainEquals(int entry, String domain) {
+        int start = buffer.getInt(startsAt + entry * 4);
+        int end = buffer.getInt(startsAt + (entry + 1) * 4);
+        if (end - start != domain.length()) return false;
+        for (int c = 0; c < domain.length(); c++) {
+            if (buffer.getChar(charsAt + (start + c) * 2) != domain.charAt(c)) return false;
+        }
+        return true;
+    }
+
+    private String domain(int entry) {
+        int start = buffer.getInt(startsAt + entry * 4);
+        int end = buffer.getInt(startsAt + (entry + 1) * 4);
+        char[] chars = new char[end - start];
+        for (int c = 0; c < chars.length; c++) {
+            chars[c] = buffer.getChar(charsAt + (start + c) * 2);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Переносит данные в память в порядке исходного файла, например перед изменением
+     */
+    Snapshot materialize() {
+        List<DomainIpPair> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pairs.add(new DomainIpPair(domain(i), buffer.getInt(ipsAt + i * 4)));
+        }
+        // Порядок сортировки уже сохранен в снимке, повторно сортировать не нужно
+        DomainIpPair[] sorted = new DomainIpPair[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = pairs.get(buffer.getInt(orderAt + i * 4));
+        }
+        return Snapshot.of(pairs, sorted);
+    }
+
+    /**
+     * SHA-256 содержимого файла, по которому проверяется актуальность снимка
+     */
+    static byte[] hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+}
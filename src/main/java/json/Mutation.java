@@ -0,0 +1,65 @@
+package json;
+
+/**
+ * Изменение набора пар для пакетного применения через {@link FileService#applyBatch}
+ */
+public final class Mutation {
+    public enum Type { ADD, REMOVE }
+
+    private final Type type;
+    private final String domain;
+    private final String ip;
+
+    private Mutation(Type type, String domain, String ip) {
+        this.type = type;
+        this.domain = domain;
+        this.ip = ip;
+    }
+
+    public static Mutation add(String domain, String ip) {
+        return new Mutation(Type.ADD, domain, ip);
+    }
+
+    /**
+     * Удаление пары по домену или IP-адресу
+     */
+    public static Mutation remove(String domainOrIp) {
+        return new Mutation(Type.REMOVE, domainOrIp, null);
+    }
+
+    /**
+     * Разбирает строку вида "add домен ip" или "remove домен_или_ip"
+     * @throws IllegalArgumentException если строка не соответствует формату
+     */
+    public static Mutation parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length == 3 && parts[0].equalsIgnoreCase("add")) {
+            return add(parts[1], parts[2]);
+        }
+        if (parts.length == 2 && parts[0].equalsIgnoreCase("remove")) {
+            return remove(parts[1]);
+        }
+        throw new IllegalArgumentException("Неверная команда: " + line.trim()
+                + ". Ожидается 'add <домен> <ip>' или 'remove <домен или ip>'");
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Домен для добавления или домен/IP для удаления
+     */
+    public String getDomain() {
+        return domain;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.ADD ? "add " + domain + " " + ip : "remove " + domain;
+    }
+}
@@ -0,0 +1,34 @@
+package json;
+
+/**
+ * Результат разрешения одного ключа в resolveAll: домен или IP-адрес и найденное для него значение
+ */
+public final class Resolution {
+    private final String key;
+    private final String value;
+
+    Resolution(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return IP-адрес для домена, домен для IP-адреса или null, если пара не найдена
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isFound() {
+        return value != null;
+    }
+
+    @Override
+    public String toString() {
+        return key + " -> " + value;
+    }
+}
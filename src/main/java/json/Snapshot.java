@@ -0,0 +1,331 @@
+package json;
+
+import model.DomainIpPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Набор пар вместе с индексами и отсортированным по домену массивом. После публикации в FileService
+ * не изменяется: писатели меняют копию и публикуют ее целиком, поэтому читатели всегда видят
+ * согласованное состояние.
+ * <p>
+ * Снимок - это общая для многих снимков неизменяемая основа и небольшая разница с ней. Копия писателя
+ * копирует только разницу, поэтому одиночное изменение не копирует все данные. Когда разница
+ * вырастает примерно до 2 * sqrt(n) изменений, при публикации она вливается в новую основу:
+ * эта перестройка стоит O(n), а в пересчете на одно изменение - O(sqrt(n)).
+ * Список пар в порядке файла и отсортированный список собираются при первом обращении.
+ */
+final class Snapshot {
+    private static final Comparator<DomainIpPair> BY_DOMAIN = Comparator.comparing(DomainIpPair::getDomain);
+    // Значение в индексах разницы: ключ убран из индекса основы
+    private static final DomainIpPair REMOVED = new DomainIpPair("", 0);
+    private static final int MIN_COMPACT_THRESHOLD = 256;
+
+    private final Base base;
+    // Разница с основой: новые пары в порядке добавления, удаленные пары основы и изменения индексов
+    private final List<DomainIpPair> added;
+    private final Set<DomainIpPair> removed;
+    private final Map<String, DomainIpPair> domainDelta;
+    private final IpIndex ipDelta;
+    private boolean frozen;
+    // Собираются при первом обращении; у опубликованного снимка данные уже не меняются
+    private volatile List<DomainIpPair> pairs;
+    private volatile List<DomainIpPair> sortedView;
+
+    /**
+     * Неизменяемая основа снимка
+     */
+    private static final class Base {
+        // Пары в порядке добавления - в этом порядке они сохраняются в файл
+        final List<DomainIpPair> pairs;
+        // Индексы для поиска за O(1): домен без учета регистра -> пара и IP -> пара
+        final Map<String, DomainIpPair> domainIndex;
+        final IpIndex ipIndex;
+        // Пары с общим доменом (без учета регистра) или общим IP в порядке файла; в индексах - первая из них
+        final Map<String, List<DomainIpPair>> domainGroups;
+        final Map<Integer, List<DomainIpPair>> ipGroups;
+        final DomainIpPair[] sorted;
+
+        Base(List<DomainIpPair> pairs, DomainIpPair[] sorted) {
+            this.pairs = pairs;
+            this.sorted = sorted;
+            domainIndex = new HashMap<>(Math.max(16, pairs.size() * 4 / 3 + 1));
+            ipIndex = new IpIndex(pairs.size());
+            Map<String, List<DomainIpPair>> domainGroups = new HashMap<>();
+            Map<Integer, List<DomainIpPair>> ipGroups = new HashMap<>();
+            for (DomainIpPair pair : pairs) {
+                String key = domainKey(pair.getDomain());
+                DomainIpPair first = domainIndex.putIfAbsent(key, pair);
+                if (first != null) {
+                    domainGroups.computeIfAbsent(key, k -> newGroup(first)).add(pair);
+                }
+                DomainIpPair firstWithIp = ipIndex.putIfAbsent(pair);
+                if (firstWithIp != null) {
+                    ipGroups.computeIfAbsent(pair.getIpAddress(), k -> newGroup(firstWithIp)).add(pair);
+                }
+            }
+            this.domainGroups = domainGroups.isEmpty() ? Collections.emptyMap() : domainGroups;
+            this.ipGroups = ipGroups.isEmpty() ? Collections.emptyMap() : ipGroups;
+        }
+
+        private static List<DomainIpPair> newGroup(DomainIpPair first) {
+            List<DomainIpPair> group = new ArrayList<>(2);
+            group.add(first);
+            return group;
+        }
+    }
+
+    private Snapshot(Base base, List<DomainIpPair> added, Set<DomainIpPair> removed,
+                     Map<String, DomainIpPair> domainDelta, IpIndex ipDelta) {
+        this.base = base;
+        this.added = added;
+        this.removed = removed;
+        this.domainDelta = domainDelta;
+        this.ipDelta = ipDelta;
+    }
+
+    private static Snapshot frozen(Base base) {
+        Snapshot snapshot = new Snapshot(base, Collections.emptyList(), Collections.emptySet(),
+                Collections.emptyMap(), new IpIndex(0));
+        snapshot.frozen = true;
+        return snapshot;
+    }
+
+    static Snapshot of(List<DomainIpPair> pairs) {
+        DomainIpPair[] sorted = pairs.toArray(new DomainIpPair[0]);
+        Arrays.sort(sorted, BY_DOMAIN);
+        return of(pairs, sorted);
+    }
+
+    /**
+     * @param sorted те же пары, уже отсортированные по домену
+     */
+    static Snapshot of(List<DomainIpPair> pairs, DomainIpPair[] sorted) {
+        return frozen(new Base(pairs, sorted));
+    }
+
+    /**
+     * Копия для изменения писателем: копируется только разница с основой.
+     * Перед публикацией нужно вызвать freeze().
+     */
+    Snapshot copy() {
+        Set<DomainIpPair> removedCopy = Collections.newSetFromMap(new IdentityHashMap<>());
+        removedCopy.addAll(removed);
+        return new Snapshot(base, new ArrayList<>(added), removedCopy, new HashMap<>(domainDelta), new IpIndex(ipDelta));
+    }
+
+    /**
+     * Завершает изменения копии. Если разница с основой выросла, вливает ее в новую основу:
+     * отсортированный массив при этом собирается слиянием, без полной сортировки
+     */
+    Snapshot freeze() {
+        if (frozen) return this;
+        frozen = true;
+        int size = base.pairs.size();
+        int threshold = Math.max(MIN_COMPACT_THRESHOLD, 2 * (int) Math.sqrt(size));
+        if (added.size() + removed.size() <= threshold) {
+            return this;
+        }
+        return frozen(new Base(mergePairs(), mergeSorted()));
+    }
+
+    private int size() {
+        return base.pairs.size() - removed.size() + added.size();
+    }
+
+    /**
+     * Пары в порядке добавления - в этом порядке они сохраняются в файл
+     */
+    List<DomainIpPair> pairs() {
+        List<DomainIpPair> list = pairs;
+        if (list == null) {
+            list = Collections.unmodifiableList(mergePairs());
+            pairs = list;
+        }
+        return list;
+    }
+
+    private List<DomainIpPair> mergePairs() {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return base.pairs;
+        }
+        List<DomainIpPair> merged = new ArrayList<>(size());
+        for (DomainIpPair pair : base.pairs) {
+            if (!removed.contains(pair)) {
+                merged.add(pair);
+            }
+        }
+        merged.addAll(added);
+        return merged;
+    }
+
+    /**
+     * Все пары, отсортированные по домену. Список собирается один раз на снимок
+     * слиянием за O(n + k log k) для k изменений и дальше не копируется.
+     */
+    List<DomainIpPair> sorted() {
+        List<DomainIpPair> view = sortedView;
+        if (view == null) {
+            view = Collections.unmodifiableList(Arrays.asList(mergeSorted()));
+            sortedView = view;
+        }
+        return view;
+    }
+
+    private DomainIpPair[] mergeSorted() {
+        DomainIpPair[] sorted = base.sorted;
+        if (added.isEmpty() && removed.isEmpty()) {
+            return sorted;
+        }
+        DomainIpPair[] inserted = added.toArray(new DomainIpPair[0]);
+        Arrays.sort(inserted, BY_DOMAIN);
+        DomainIpPair[] merged = new DomainIpPair[size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < sorted.length || j < inserted.length) {
+            DomainIpPair next;
+            if (j == inserted.length || (i < sorted.length && BY_DOMAIN.compare(sorted[i], inserted[j]) <= 0)) {
+                next = sorted[i++];
+                if (removed.contains(next)) continue;
+            } else {
+                next = inserted[j++];
+            }
+            merged[k++] = next;
+        }
+        return merged;
+    }
+
+    /**
+     * Пары, домен которых начинается с prefix, в порядке сортировки
+     */
+    List<DomainIpPair> sortedByPrefix(String prefix) {
+        List<DomainIpPair> sorted = sorted();
+        // Домены с общим префиксом в отсортированном списке идут подряд
+        int from = lowerBound(sorted, prefix, false);
+        int to = lowerBound(sorted, prefix, true);
+        return sorted.subList(from, to);
+    }
+
+    // Первая позиция, домен в которой не меньше prefix (или, если afterPrefix, больше всех доменов с этим префиксом)
+    private static int lowerBound(List<DomainIpPair> sorted, String prefix, boolean afterPrefix) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            String domain = sorted.get(middle).getDomain();
+            boolean before = afterPrefix
+                    ? domain.startsWith(prefix) || domain.compareTo(prefix) < 0
+                    : domain.compareTo(prefix) < 0;
+            if (before) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    static String domainKey(String domain) {
+        return domain.toLowerCase(Locale.ROOT);
+    }
+
+    private DomainIpPair indexedByDomain(String key) {
+        DomainIpPair pair = domainDelta.get(key);
+        if (pair == null) {
+            return base.domainIndex.get(key);
+        }
+        return pair == REMOVED ? null : pair;
+    }
+
+    /**
+     * Ищет первую пару с точным совпадением домена
+     */
+    DomainIpPair findByDomain(String domain) {
+        String key = domainKey(domain);
+        DomainIpPair pair = indexedByDomain(key);
+        if (pair != null && pair.getDomain().equals(domain)) {
+            return pair;
+        }
+        // Искомая пара могла не попасть в индекс из-за домена, отличающегося регистром
+        List<DomainIpPair> group = base.domainGroups.get(key);
+        if (group != null) {
+            for (DomainIpPair candidate : group) {
+                if (candidate.getDomain().equals(domain) && !removed.contains(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Занят ли домен без учета регистра
+     */
+    boolean containsDomain(String domain) {
+        return indexedByDomain(domainKey(domain)) != null;
+    }
+
+    boolean isIndexedByIp(DomainIpPair pair) {
+        return findByIp(pair.getIpAddress()) == pair;
+    }
+
+    DomainIpPair findByIp(int ip) {
+        DomainIpPair pair = ipDelta.get(ip);
+        if (pair == null) {
+            return base.ipIndex.get(ip);
+        }
+        return pair == REMOVED ? null : pair;
+    }
+
+    boolean containsIp(int ip) {
+        return findByIp(ip) != null;
+    }
+
+    void insert(DomainIpPair pair) {
+        added.add(pair);
+        domainDelta.put(domainKey(pair.getDomain()), pair);
+        if (!containsIp(pair.getIpAddress())) {
+            ipDelta.put(pair.getIpAddress(), pair);
+        }
+        pairs = null;
+        sortedView = null;
+    }
+
+    void delete(DomainIpPair pair) {
+        if (!added.remove(pair)) {
+            removed.add(pair);
+        }
+        // Место удаленной пары в индексе занимает следующая с тем же доменом или IP, если она есть
+        String key = domainKey(pair.getDomain());
+        if (indexedByDomain(key) == pair) {
+            domainDelta.put(key, firstRemaining(base.domainGroups.get(key)));
+        }
+        int ip = pair.getIpAddress();
+        if (findByIp(ip) == pair) {
+            ipDelta.put(ip, firstRemaining(base.ipGroups.get(ip)));
+        }
+        pairs = null;
+        sortedView = null;
+    }
+
+    // Группы состоят из пар основы, поэтому удаленные пары группы всегда есть в removed
+    private DomainIpPair firstRemaining(List<DomainIpPair> group) {
+        if (group != null) {
+            for (DomainIpPair candidate : group) {
+                if (!removed.contains(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return REMOVED;
+    }
+}
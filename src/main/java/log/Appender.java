@@ -0,0 +1,18 @@
+package log;
+
+/**
+ * Получатель сообщений журнала
+ */
+public interface Appender {
+    void append(LogEvent event);
+
+    /**
+     * Дожидается вывода уже принятых сообщений
+     */
+    default void flush() {
+    }
+
+    default void close() {
+        flush();
+    }
+}
@@ -0,0 +1,131 @@
+package log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Передает сообщения другому получателю в отдельном потоке через кольцевой буфер
+ * (ArrayBlockingQueue). Записывающий поток не ждет вывода в консоль: он только кладет
+ * сообщение в буфер. Если буфер полон, сообщение отбрасывается, а количество отброшенных
+ * выводится следующим сообщением - медленная консоль не тормозит передачу файлов.
+ */
+public class AsyncAppender implements Appender {
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    private static final long CLOSE_TIMEOUT_MILLIS = 2_000;
+
+    private final Appender delegate;
+    private final BlockingQueue<LogEvent> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    // Сколько сообщений принято и сколько выведено: flush ждет, пока они сравняются
+    private final AtomicLong accepted = new AtomicLong();
+    private volatile long written;
+    private final Object writtenLock = new Object();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    public AsyncAppender(Appender delegate, int capacity) {
+        this.delegate = delegate;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::drainLoop, "log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        if (closed || !buffer.offer(event)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        accepted.incrementAndGet();
+    }
+
+    private void drainLoop() {
+        List<LogEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                LogEvent first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private void write(List<LogEvent> batch) {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            LogEvent first = batch.get(0);
+            delegate.append(new LogEvent(first.getTimeMillis(), Level.WARN, AsyncAppender.class.getName(),
+                    Thread.currentThread().getName(), "Буфер журнала переполнен, пропущено сообщений: " + lost));
+        }
+        for (LogEvent event : batch) {
+            try {
+                delegate.append(event);
+            } catch (RuntimeException e) {
+                // Ошибка вывода одного сообщения не должна останавливать поток журнала
+            }
+        }
+        delegate.flush();
+        synchronized (writtenLock) {
+            written += batch.size();
+            writtenLock.notifyAll();
+        }
+    }
+
+    /**
+     * Дожидается вывода сообщений, принятых до вызова
+     */
+    @Override
+    public void flush() {
+        long target = accepted.get();
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+        synchronized (writtenLock) {
+            while (written < target && worker.isAlive()) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return;
+                }
+                try {
+                    writtenLock.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Выводит оставшиеся сообщения и останавливает поток. Новые сообщения после этого отбрасываются.
+     */
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        try {
+            worker.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    /**
+     * Сообщения, отброшенные из-за переполнения буфера и еще не отмеченные в журнале
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+}
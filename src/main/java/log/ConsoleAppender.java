@@ -0,0 +1,35 @@
+package log;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Выводит сообщения в поток, по умолчанию в stderr, чтобы диагностика не смешивалась
+ * с результатами команд в stdout. Строка: время, уровень, класс, сообщение.
+ */
+public class ConsoleAppender implements Appender {
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final PrintStream out;
+
+    public ConsoleAppender(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        // Строка собирается целиком, чтобы сообщения разных потоков не перемешивались
+        String line = TIME_FORMAT.format(Instant.ofEpochMilli(event.getTimeMillis()))
+                + ' ' + String.format("%-5s", event.getLevel())
+                + ' ' + event.getLogger() + " - " + event.getMessage();
+        out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
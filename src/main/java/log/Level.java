@@ -0,0 +1,21 @@
+package log;
+
+import java.util.Locale;
+
+/**
+ * Уровни сообщений журнала по возрастанию важности. OFF отключает журнал целиком.
+ */
+public enum Level {
+    DEBUG, INFO, WARN, ERROR, OFF;
+
+    /**
+     * @throws IllegalArgumentException если уровень неизвестен
+     */
+    public static Level parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный уровень журнала: " + value);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Точка входа журнала: выдает Logger для класса и хранит общий уровень и получателя сообщений.
+ * По умолчанию сообщения от INFO выводятся в stderr через AsyncAppender. Уровень задается
+ * системным свойством sftp.log.level или методом setLevel.
+ * <p>
+ * Журнал - для диагностики. Ответы пользователю, меню и результаты команд по-прежнему
+ * выводятся в stdout напрямую.
+ */
+public final class Log {
+    public static final String LEVEL_PROPERTY = "sftp.log.level";
+
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+    private static volatile Level level = Level.INFO;
+    private static volatile Appender appender = new AsyncAppender(new ConsoleAppender(System.err),
+            AsyncAppender.DEFAULT_CAPACITY);
+
+    static {
+        String configured = System.getProperty(LEVEL_PROPERTY);
+        if (configured != null && !configured.trim().isEmpty()) {
+            level = Level.parse(configured);
+        }
+        // Сообщения, оставшиеся в буфере, выводятся и при обычном завершении процесса
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> appender.close(), "log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    public static Logger get(Class<?> type) {
+        return LOGGERS.computeIfAbsent(type.getName(), Logger::new);
+    }
+
+    public static Level level() {
+        return level;
+    }
+
+    public static void setLevel(Level level) {
+        Log.level = level;
+    }
+
+    /**
+     * Заменяет получателя сообщений; прежний выводит накопленное и закрывается
+     */
+    public static void setAppender(Appender appender) {
+        Appender previous = Log.appender;
+        Log.appender = appender;
+        previous.close();
+    }
+
+    /**
+     * Дожидается вывода уже записанных сообщений, например перед выводом меню,
+     * чтобы они не появились после него
+     */
+    public static void flush() {
+        appender.flush();
+    }
+
+    static void append(LogEvent event) {
+        appender.append(event);
+    }
+}
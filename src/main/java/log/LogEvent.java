@@ -0,0 +1,41 @@
+package log;
+
+/**
+ * Сообщение журнала. Время и поток запоминаются в момент записи,
+ * а форматируется сообщение уже в потоке, который его выводит.
+ */
+public final class LogEvent {
+    private final long timeMillis;
+    private final Level level;
+    private final String logger;
+    private final String thread;
+    private final String message;
+
+    LogEvent(long timeMillis, Level level, String logger, String thread, String message) {
+        this.timeMillis = timeMillis;
+        this.level = level;
+        this.logger = logger;
+        this.thread = thread;
+        this.message = message;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getLogger() {
+        return logger;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,67 @@
+package log;
+
+import java.util.function.Supplier;
+
+/**
+ * Журнал одного класса. Проверка уровня - одно сравнение, поэтому отключенное сообщение
+ * ничего не стоит, если оно передано через Supplier: строка тогда даже не собирается.
+ */
+public final class Logger {
+    private final String name;
+
+    Logger(String name) {
+        this.name = name;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(Log.level()) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void log(Level level, String message) {
+        if (isEnabled(level)) {
+            Log.append(new LogEvent(System.currentTimeMillis(), level, name, Thread.currentThread().getName(), message));
+        }
+    }
+
+    public void log(Level level, Supplier<String> message) {
+        if (isEnabled(level)) {
+            log(level, message.get());
+        }
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public void error(Supplier<String> message) {
+        log(Level.ERROR, message);
+    }
+}
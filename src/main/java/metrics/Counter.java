@@ -0,0 +1,24 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Монотонный счетчик. LongAdder распределяет увеличения между ячейками, поэтому потоки,
+ * считающие одновременно, не конкурируют за одну переменную.
+ */
+public final class Counter implements CounterMXBean {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    @Override
+    public long getValue() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,8 @@
+package metrics;
+
+/**
+ * Счетчик, видимый через JMX
+ */
+public interface CounterMXBean {
+    long getValue();
+}
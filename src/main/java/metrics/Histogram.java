@@ -0,0 +1,133 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма длительностей с фиксированными корзинами, как у гистограмм Prometheus.
+ * Запись увеличивает один счетчик корзины и сумму без блокировок; количество и перцентили
+ * считаются только при чтении.
+ */
+public final class Histogram implements HistogramMXBean {
+    // Верхние границы корзин: от 100 мкс (поиск в памяти, stat) до минуты (передача большого файла)
+    static final long[] BOUNDS_NANOS = {
+            micros(100), micros(250), micros(500),
+            millis(1), micros(2_500), millis(5), millis(10), millis(25), millis(50),
+            millis(100), millis(250), millis(500),
+            millis(1_000), millis(2_500), millis(5_000), millis(10_000), millis(30_000), millis(60_000)
+    };
+
+    // Последняя корзина - все, что больше последней границы (+Inf)
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Записывает время, прошедшее с started (значение System.nanoTime())
+     */
+    public void recordSince(long started) {
+        record(System.nanoTime() - started);
+    }
+
+    /**
+     * Количество записей в каждой корзине, не нарастающим итогом
+     */
+    long[] bucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return toMillis(sumNanos.sum());
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalMillis() / count;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return percentileMillis(0.5);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    /**
+     * Верхняя граница корзины, в которую попал перцентиль; для последней корзины - максимум
+     */
+    double percentileMillis(double quantile) {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return toMillis(Math.min(BOUNDS_NANOS[i], maxNanos.get()));
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static long micros(long micros) {
+        return TimeUnit.MICROSECONDS.toNanos(micros);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,19 @@
+package metrics;
+
+/**
+ * Распределение длительностей, видимое через JMX. Перцентили оцениваются сверху
+ * границей корзины, в которую они попали.
+ */
+public interface HistogramMXBean {
+    long getCount();
+
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getMedianMillis();
+
+    double getP99Millis();
+}
@@ -0,0 +1,150 @@
+package metrics;
+
+import log.Log;
+import log.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Счетчики и гистограммы длительностей операций клиента. Метрики - статические поля,
+ * поэтому запись не ищет метрику по имени и не берет блокировок: это одно увеличение LongAdder.
+ * Снаружи метрики видны через JMX (registerMBeans) и в текстовом формате Prometheus (writePrometheus).
+ */
+public final class Metrics {
+    private static final Logger LOG = Log.get(Metrics.class);
+
+    private static final String DOMAIN = "sftp.client";
+    private static final List<Entry> ENTRIES = new ArrayList<>();
+
+    public static final Histogram CONNECT = histogram("sftp_connect_seconds",
+            "Подключение к серверу: TCP, обмен ключами и аутентификация");
+    public static final Counter CONNECT_ERRORS = counter("sftp_connect_errors_total",
+            "Неудачные подключения к серверу");
+    public static final Histogram LIST = histogram("sftp_list_seconds",
+            "Просмотр каталога на сервере в поисках файла с доменами");
+    public static final Histogram DOWNLOAD = histogram("sftp_download_seconds",
+            "Скачивание файла с доменами");
+    public static final Counter DOWNLOAD_BYTES = counter("sftp_download_bytes_total",
+            "Байт скачано с сервера");
+    public static final Counter DOWNLOAD_ERRORS = counter("sftp_download_errors_total",
+            "Неудачные скачивания");
+    public static final Histogram UPLOAD = histogram("sftp_upload_seconds",
+            "Выгрузка файла с доменами");
+    public static final Counter UPLOAD_BYTES = counter("sftp_upload_bytes_total",
+            "Байт выгружено на сервер");
+    public static final Counter UPLOAD_ERRORS = counter("sftp_upload_errors_total",
+            "Неудачные выгрузки");
+    public static final Histogram PARSE = histogram("domains_parse_seconds",
+            "Разбор JSON файла с доменами");
+    public static final Counter LOOKUP_HITS = counter("domains_lookup_hits_total",
+            "Поиски IP по домену и домена по IP, нашедшие пару");
+    public static final Counter LOOKUP_MISSES = counter("domains_lookup_misses_total",
+            "Поиски IP по домену и домена по IP, не нашедшие пару");
+    public static final Histogram SAVE = histogram("domains_save_seconds",
+            "Перезапись локального файла с доменами");
+
+    private static boolean registered;
+
+    private Metrics() {
+    }
+
+    private static final class Entry {
+        final String name;
+        final String help;
+        final Object metric;
+
+        Entry(String name, String help, Object metric) {
+            this.name = name;
+            this.help = help;
+            this.metric = metric;
+        }
+    }
+
+    private static Counter counter(String name, String help) {
+        Counter counter = new Counter();
+        ENTRIES.add(new Entry(name, help, counter));
+        return counter;
+    }
+
+    private static Histogram histogram(String name, String help) {
+        Histogram histogram = new Histogram();
+        ENTRIES.add(new Entry(name, help, histogram));
+        return histogram;
+    }
+
+    /**
+     * Имена всех метрик в порядке вывода
+     */
+    public static List<String> names() {
+        List<String> names = new ArrayList<>(ENTRIES.size());
+        for (Entry entry : ENTRIES) {
+            names.add(entry.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Регистрирует метрики в платформенном MBeanServer как sftp.client:type=Counter|Histogram,name=...
+     * Повторный вызов ничего не делает.
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Entry entry : ENTRIES) {
+                String type = entry.metric instanceof Histogram ? "Histogram" : "Counter";
+                ObjectName name = new ObjectName(DOMAIN + ":type=" + type + ",name=" + entry.name);
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(entry.metric, name);
+                }
+            }
+            registered = true;
+        } catch (JMException e) {
+            LOG.warn("Ошибка регистрации метрик в JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Пишет все метрики в текстовом формате Prometheus
+     */
+    public static void writePrometheus(Appendable out) throws IOException {
+        for (Entry entry : ENTRIES) {
+            boolean histogram = entry.metric instanceof Histogram;
+            out.append("# HELP ").append(entry.name).append(' ').append(entry.help).append('\n');
+            out.append("# TYPE ").append(entry.name).append(histogram ? " histogram\n" : " counter\n");
+            if (!histogram) {
+                out.append(entry.name).append(' ')
+                        .append(Long.toString(((Counter) entry.metric).getValue())).append('\n');
+                continue;
+            }
+            Histogram metric = (Histogram) entry.metric;
+            long[] counts = metric.bucketCounts();
+            // Корзины Prometheus накопительные: каждая включает все меньшие
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String bound = i < Histogram.BOUNDS_NANOS.length ? seconds(Histogram.BOUNDS_NANOS[i]) : "+Inf";
+                out.append(entry.name).append("_bucket{le=\"").append(bound).append("\"} ")
+                        .append(Long.toString(cumulative)).append('\n');
+            }
+            out.append(entry.name).append("_sum ").append(seconds(metric.sumNanos())).append('\n');
+            out.append(entry.name).append("_count ").append(Long.toString(cumulative)).append('\n');
+        }
+    }
+
+    private static String seconds(long nanos) {
+        // Без экспоненты и лишних нулей: 0.00025, 2.5, 60
+        String value = String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+        value = value.replaceAll("0+$", "");
+        return value.endsWith(".") ? value.substring(0, value.length() - 1) : value;
+    }
+}
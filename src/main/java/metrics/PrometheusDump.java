@@ -0,0 +1,83 @@
+package metrics;
+
+import log.Log;
+import log.Logger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически записывает метрики в файл в текстовом формате Prometheus, например для
+ * textfile collector у node_exporter. Файл пишется рядом и заменяется целиком,
+ * поэтому читатель не увидит его наполовину записанным.
+ */
+public class PrometheusDump implements Closeable {
+    private static final Logger LOG = Log.get(PrometheusDump.class);
+
+    public static final int DEFAULT_INTERVAL_SECONDS = 15;
+
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    public PrometheusDump(Path file, int intervalSeconds) {
+        if (intervalSeconds < 1) {
+            throw new IllegalArgumentException("Интервал записи метрик должен быть положительным: " + intervalSeconds);
+        }
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Запускает запись по значениям настроек
+     * @param file путь к файлу; null или пустая строка - метрики не записываются
+     * @param intervalSeconds интервал в секундах; null - DEFAULT_INTERVAL_SECONDS
+     * @return запущенная запись или null
+     * @throws IllegalArgumentException если интервал задан неверно
+     */
+    public static PrometheusDump start(String file, String intervalSeconds) {
+        if (file == null || file.trim().isEmpty()) {
+            return null;
+        }
+        int interval = intervalSeconds == null || intervalSeconds.trim().isEmpty()
+                ? DEFAULT_INTERVAL_SECONDS : Integer.parseInt(intervalSeconds.trim());
+        return new PrometheusDump(Paths.get(file.trim()), interval);
+    }
+
+    public synchronized void write() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            Metrics.writePrometheus(writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException e) {
+            LOG.warn("Ошибка записи метрик: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Останавливает периодическую запись и записывает итоговые значения
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        writeQuietly();
+    }
+}
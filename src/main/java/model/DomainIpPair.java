@@ -1,10 +1,15 @@
 package model;
 
 public class DomainIpPair {
-    private String domain;
-    private String ip;
+    private final String domain;
+    // IPv4 адрес хранится упакованным в int, текст формируется только при выводе
+    private final int ip;
 
     public String getIp() {
+        return Ipv4.format(ip);
+    }
+
+    public int getIpAddress() {
         return ip;
     }
 
@@ -14,10 +19,14 @@ public class DomainIpPair {
 
     @Override
     public String toString() {
-        return "Domain: " + domain + ", IP: " + ip;
+        return "Domain: " + domain + ", IP: " + getIp();
     }
 
     public DomainIpPair(String domain, String ip) {
+        this(domain, Ipv4.parse(ip));
+    }
+
+    public DomainIpPair(String domain, int ip) {
         this.domain = domain;
         this.ip = ip;
     }
@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * Преобразование IPv4 адреса между текстовой записью и 32-битным числом
+ */
+public final class Ipv4 {
+
+    private Ipv4() {
+    }
+
+    /**
+     * Результат tryParse для строки, не являющейся IPv4 адресом
+     */
+    public static final long INVALID = -1L;
+
+    /**
+     * Разбирает адрес вида a.b.c.d без промежуточных объектов
+     * @return адрес, упакованный в int (старший байт - первое число)
+     * @throws IllegalArgumentException если строка не является корректным IPv4 адресом
+     */
+    public static int parse(CharSequence ip) {
+        long address = tryParse(ip);
+        if (address == INVALID) {
+            throw new IllegalArgumentException("Некорректный формат IPv4: " + ip);
+        }
+        return (int) address;
+    }
+
+    /**
+     * Разбирает адрес без исключений и промежуточных объектов.
+     * Принимает ровно те строки, что и прежнее регулярное выражение
+     * {@code ((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)}:
+     * четыре числа из 1-3 десятичных цифр со значением не больше 255, ведущие нули допускаются.
+     * @return адрес как беззнаковое 32-битное число или INVALID
+     */
+    public static long tryParse(CharSequence ip) {
+        if (ip == null) return INVALID;
+        int length = ip.length();
+        // Самая длинная допустимая запись - 000.000.000.000
+        if (length < 7 || length > 15) return INVALID;
+        long result = 0;
+        int i = 0;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (i >= length || ip.charAt(i) != '.') return INVALID;
+                i++;
+            }
+            int value = 0;
+            int start = i;
+            while (i < length && i - start < 3) {
+                char c = ip.charAt(i);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+                i++;
+            }
+            if (i == start || value > 255) return INVALID;
+            result = (result << 8) | value;
+        }
+        return i == length ? result : INVALID;
+    }
+
+    /**
+     * Формирует текстовую запись адреса
+     */
+    public static String format(int ip) {
+        return new StringBuilder(15)
+                .append(ip >>> 24).append('.')
+                .append((ip >>> 16) & 0xFF).append('.')
+                .append((ip >>> 8) & 0xFF).append('.')
+                .append(ip & 0xFF)
+                .toString();
+    }
+}
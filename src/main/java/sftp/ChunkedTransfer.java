@@ -0,0 +1,332 @@
+package sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import log.Log;
+import log.Logger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+/**
+ * Параллельная передача большого файла: файл делится на диапазоны байт, и каждый диапазон
+ * передается по своему SFTP каналу той же сессии чтением и записью со смещением.
+ * Скорость тогда не ограничена окном одного канала и временем ожидания его подтверждений.
+ */
+public class ChunkedTransfer {
+    private static final Logger LOG = Log.get(ChunkedTransfer.class);
+
+    public static final int DEFAULT_CHANNELS = 4;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int STOP_TIMEOUT_SECONDS = 10;
+
+    private final Session session;
+    private final int channels;
+
+    /**
+     * @param session подключенная сессия, в которой открываются каналы для передачи
+     * @param channels число каналов и диапазонов, на которые делится файл
+     */
+    public ChunkedTransfer(Session session, int channels) {
+        if (channels < 1) {
+            throw new IllegalArgumentException("Число каналов должно быть положительным: " + channels);
+        }
+        this.session = session;
+        this.channels = channels;
+    }
+
+    private interface RangeTask {
+        void run(int range) throws Exception;
+    }
+
+    /**
+     * Ход скачивания: сколько байт каждого диапазона уже записано в локальный файл и их
+     * контрольные суммы. Передается в следующую попытку, чтобы продолжить с места обрыва.
+     */
+    static final class Progress {
+        private String remotePath;
+        private long size;
+        private int mtime;
+        private long[] bounds;
+        private long[] done;
+        private CRC32[] checksums;
+
+        boolean resumes(String remotePath, SftpATTRS attrs, Path localFile) throws IOException {
+            return bounds != null && remotePath.equals(this.remotePath) && attrs.getSize() == size
+                    && attrs.getMTime() == mtime && Files.isRegularFile(localFile) && Files.size(localFile) == size;
+        }
+
+        /**
+         * Сколько байт файла уже скачано и не будет передаваться повторно
+         */
+        long resumeOffset(String remotePath, SftpATTRS attrs, Path localFile) throws IOException {
+            return resumes(remotePath, attrs, localFile) ? transferred() : 0;
+        }
+
+        void start(String remotePath, SftpATTRS attrs, long[] bounds) {
+            this.remotePath = remotePath;
+            this.size = attrs.getSize();
+            this.mtime = attrs.getMTime();
+            this.bounds = bounds;
+            this.done = new long[bounds.length - 1];
+            this.checksums = new CRC32[bounds.length - 1];
+            for (int range = 0; range < checksums.length; range++) {
+                checksums[range] = new CRC32();
+            }
+        }
+
+        long transferred() {
+            long total = 0;
+            for (long bytes : done) {
+                total += bytes;
+            }
+            return total;
+        }
+
+        void reset() {
+            bounds = null;
+        }
+    }
+
+    /**
+     * Скачивает файл диапазонами в заранее выделенный локальный файл и проверяет сборку:
+     * контрольная сумма каждого диапазона при приеме должна совпасть с суммой того же диапазона
+     * в собранном файле, а файл на сервере не должен измениться за время передачи.
+     * @return SHA-256 собранного файла
+     */
+    public byte[] download(String remotePath, Path localFile) throws Exception {
+        return download(remotePath, localFile, new Progress());
+    }
+
+    /**
+     * То же, но если скачивание с этим progress оборвалось, а файл на сервере не изменился,
+     * каждый диапазон продолжается с того места, где остановился
+     */
+    byte[] download(String remotePath, Path localFile, Progress progress) throws Exception {
+        List<ChannelSftp> opened = new ArrayList<>();
+        try {
+            ChannelSftp control = openChannel(opened);
+            SftpATTRS before = control.stat(remotePath);
+            if (progress.resumes(remotePath, before, localFile)) {
+                LOG.info("Скачивание продолжается с " + progress.transferred() + " из "
+                        + progress.size + " байт");
+            } else {
+                progress.start(remotePath, before, split(before.getSize()));
+                LOG.debug(() -> "Скачивание " + remotePath + " по " + progress.done.length + " каналам");
+                try (RandomAccessFile file = new RandomAccessFile(localFile.toFile(), "rw")) {
+                    // Файл сразу получает итоговый размер, и каждый поток пишет в свой диапазон
+                    file.setLength(before.getSize());
+                }
+            }
+            int ranges = progress.done.length;
+            while (opened.size() < ranges) {
+                openChannel(opened);
+            }
+
+            try (FileChannel out = FileChannel.open(localFile, StandardOpenOption.WRITE)) {
+                runRanges(ranges, opened, range -> receive(opened.get(range), remotePath, progress, range, out));
+            }
+
+            SftpATTRS after = control.stat(remotePath);
+            // Данные уже не продолжить: следующая попытка начнется заново
+            if (after.getSize() != before.getSize() || after.getMTime() != before.getMTime()) {
+                progress.reset();
+                throw new IOException("Файл на сервере изменился во время скачивания");
+            }
+            try {
+                return verify(localFile, progress.bounds, progress.checksums);
+            } finally {
+                progress.reset();
+            }
+        } finally {
+            disconnect(opened);
+        }
+    }
+
+    /**
+     * Выгружает файл диапазонами, каждый со своего смещения, и проверяет размер файла на сервере
+     */
+    public void upload(Path localFile, String remotePath) throws Exception {
+        long size = Files.size(localFile);
+        long[] bounds = split(size);
+        int ranges = bounds.length - 1;
+        List<ChannelSftp> opened = new ArrayList<>();
+        try {
+            // JSch открывает файл на запись только с усечением, поэтому все диапазоны открываются
+            // до начала записи: иначе позднее открытие стерло бы уже записанные данные
+            List<OutputStream> outputs = new ArrayList<>(ranges);
+            for (int range = 0; range < ranges; range++) {
+                outputs.add(openChannel(opened).put(remotePath, null, ChannelSftp.OVERWRITE, bounds[range]));
+            }
+            try (FileChannel in = FileChannel.open(localFile, StandardOpenOption.READ)) {
+                runRanges(ranges, opened, range -> send(in, bounds[range], bounds[range + 1], outputs.get(range)));
+            }
+
+            long uploaded = opened.get(0).stat(remotePath).getSize();
+            if (uploaded != size) {
+                throw new IOException("Размер файла на сервере " + uploaded + " байт вместо " + size);
+            }
+        } finally {
+            disconnect(opened);
+        }
+    }
+
+    /**
+     * Границы диапазонов: диапазон i занимает [bounds[i], bounds[i + 1])
+     */
+    long[] split(long size) {
+        int ranges = (int) Math.max(1, Math.min(channels, size));
+        long[] bounds = new long[ranges + 1];
+        for (int i = 0; i <= ranges; i++) {
+            bounds[i] = size * i / ranges;
+        }
+        return bounds;
+    }
+
+    private static void receive(ChannelSftp channel, String remotePath, Progress progress, int range,
+                                FileChannel out) throws IOException, SftpException {
+        long position = progress.bounds[range] + progress.done[range];
+        long end = progress.bounds[range + 1];
+        if (position >= end) {
+            return;
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = channel.get(remotePath, null, position)) {
+            while (position < end) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+                if (read == -1) {
+                    throw new IOException("Файл на сервере короче ожидаемого");
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                long written = position;
+                while (chunk.hasRemaining()) {
+                    written += out.write(chunk, written);
+                }
+                // Ход сдвигается только после записи, поэтому не опережает файл
+                progress.checksums[range].update(buffer, 0, read);
+                progress.done[range] += read;
+                position += read;
+            }
+        }
+    }
+
+    private static void send(FileChannel in, long start, long end, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = start;
+        // Закрытие дожидается подтверждения всех записей, поэтому ошибки сервера не теряются
+        try (OutputStream out = output) {
+            while (position < end) {
+                int read = in.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - position)), position);
+                if (read == -1) {
+                    throw new IOException("Локальный файл изменился во время выгрузки");
+                }
+                out.write(buffer, 0, read);
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Читает собранный файл одним проходом: сверяет суммы диапазонов и считает SHA-256,
+     * который иначе пришлось бы считать отдельным чтением файла
+     */
+    private static byte[] verify(Path localFile, long[] bounds, CRC32[] received) throws IOException {
+        MessageDigest digest = RemoteFileState.newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(localFile)) {
+            for (int range = 0; range < received.length; range++) {
+                CRC32 crc = new CRC32();
+                long remaining = bounds[range + 1] - bounds[range];
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read == -1) {
+                        throw new IOException("Собранный файл короче ожидаемого");
+                    }
+                    crc.update(buffer, 0, read);
+                    digest.update(buffer, 0, read);
+                    remaining -= read;
+                }
+                if (crc.getValue() != received[range].getValue()) {
+                    throw new IOException("Контрольная сумма диапазона " + range + " не совпадает");
+                }
+            }
+            if (in.read() != -1) {
+                throw new IOException("Собранный файл длиннее ожидаемого");
+            }
+        }
+        return digest.digest();
+    }
+
+    private void runRanges(int ranges, List<ChannelSftp> opened, RangeTask task) throws Exception {
+        if (ranges == 1) {
+            task.run(0);
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(ranges, r -> {
+            Thread thread = new Thread(r, "sftp-chunk");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(ranges);
+            for (int range = 0; range < ranges; range++) {
+                int current = range;
+                futures.add(executor.submit(() -> {
+                    task.run(current);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                // Остальные диапазоны останавливаются до выхода, чтобы ход скачивания больше не менялся
+                disconnect(opened);
+                for (Future<?> future : futures) {
+                    try {
+                        future.get(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    } catch (ExecutionException | TimeoutException ignored) {
+                        // ошибка первого диапазона важнее
+                    }
+                }
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ChannelSftp openChannel(List<ChannelSftp> opened) throws JSchException {
+        ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+        opened.add(channel);
+        channel.connect();
+        return channel;
+    }
+
+    private static void disconnect(List<ChannelSftp> opened) {
+        for (ChannelSftp channel : opened) {
+            channel.disconnect();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package sftp;
+
+import java.util.Properties;
+
+/**
+ * Параметры подключения к SFTP серверу для неинтерактивной работы
+ */
+public class ConnectionSettings {
+    public static final int DEFAULT_PORT = 22;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 15_000;
+    // Чаще, чем обычные тайм-ауты NAT (от минуты), чтобы простаивающая сессия не обрывалась
+    public static final int DEFAULT_SERVER_ALIVE_INTERVAL_SECONDS = 30;
+    public static final int DEFAULT_SERVER_ALIVE_COUNT_MAX = 3;
+    public static final int DEFAULT_RECONNECT_ATTEMPTS = 3;
+    public static final int DEFAULT_RECONNECT_DELAY_MS = 500;
+    // Файлы меньше порога передаются одним потоком: на них открытие каналов не окупается
+    public static final int DEFAULT_PARALLEL_TRANSFER_THRESHOLD_MB = 32;
+
+    private final String host;
+    private final int port;
+    private final String login;
+    private final String password;
+    private boolean strictHostKeyChecking = true;
+    private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MS;
+    private boolean compression;
+    private int serverAliveIntervalSeconds = DEFAULT_SERVER_ALIVE_INTERVAL_SECONDS;
+    private int serverAliveCountMax = DEFAULT_SERVER_ALIVE_COUNT_MAX;
+    private int reconnectAttempts = DEFAULT_RECONNECT_ATTEMPTS;
+    private int reconnectDelayMillis = DEFAULT_RECONNECT_DELAY_MS;
+    private int transferChannels = ChunkedTransfer.DEFAULT_CHANNELS;
+    private long parallelTransferThreshold = DEFAULT_PARALLEL_TRANSFER_THRESHOLD_MB * 1024L * 1024L;
+
+    public ConnectionSettings(String host, int port, String login, String password) {
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Некорректный порт: " + port);
+        }
+        this.host = host;
+        this.port = port;
+        this.login = login;
+        this.password = password;
+    }
+
+    /**
+     * Читает настройки из properties: host, port, login, password, strictHostKeyChecking (yes/no), connectTimeout,
+     * compression (yes/no), serverAliveInterval, serverAliveCountMax, reconnectAttempts, reconnectDelay,
+     * transferChannels, parallelTransferThreshold (в мегабайтах)
+     * @throws IllegalArgumentException если обязательный параметр не задан или задан неверно
+     */
+    public static ConnectionSettings fromProperties(Properties properties) {
+        String host = required(properties, "host");
+        String login = required(properties, "login");
+        String password = properties.getProperty("password");
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("Не задан параметр password");
+        }
+        int port = intProperty(properties, "port", DEFAULT_PORT);
+
+        ConnectionSettings settings = new ConnectionSettings(host, port, login, password);
+        settings.setStrictHostKeyChecking(booleanProperty(properties, "strictHostKeyChecking", true));
+        settings.setConnectTimeoutMillis(intProperty(properties, "connectTimeout", DEFAULT_CONNECT_TIMEOUT_MS));
+        settings.setCompression(booleanProperty(properties, "compression", false));
+        settings.setServerAliveIntervalSeconds(intProperty(properties, "serverAliveInterval",
+                DEFAULT_SERVER_ALIVE_INTERVAL_SECONDS));
+        settings.setServerAliveCountMax(intProperty(properties, "serverAliveCountMax", DEFAULT_SERVER_ALIVE_COUNT_MAX));
+        settings.setReconnectAttempts(intProperty(properties, "reconnectAttempts", DEFAULT_RECONNECT_ATTEMPTS));
+        settings.setReconnectDelayMillis(intProperty(properties, "reconnectDelay", DEFAULT_RECONNECT_DELAY_MS));
+        settings.setTransferChannels(intProperty(properties, "transferChannels", ChunkedTransfer.DEFAULT_CHANNELS));
+        settings.setParallelTransferThreshold(intProperty(properties, "parallelTransferThreshold",
+                DEFAULT_PARALLEL_TRANSFER_THRESHOLD_MB) * 1024L * 1024L);
+        return settings;
+    }
+
+    private static boolean booleanProperty(Properties properties, String name, boolean defaultValue) {
+        String value = properties.getProperty(name, defaultValue ? "yes" : "no").trim();
+        if (!value.equalsIgnoreCase("yes") && !value.equalsIgnoreCase("no")) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть yes или no: " + value);
+        }
+        return value.equalsIgnoreCase("yes");
+    }
+
+    private static String required(Properties properties, String name) {
+        String value = properties.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Не задан параметр " + name);
+        }
+        return value.trim();
+    }
+
+    private static int intProperty(Properties properties, String name, int defaultValue) {
+        String value = properties.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть числом: " + value);
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Проверять ли ключ хоста по known_hosts. Если проверка отключена, новые ключи добавляются автоматически.
+     */
+    public boolean isStrictHostKeyChecking() {
+        return strictHostKeyChecking;
+    }
+
+    public ConnectionSettings setStrictHostKeyChecking(boolean strictHostKeyChecking) {
+        this.strictHostKeyChecking = strictHostKeyChecking;
+        return this;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public ConnectionSettings setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Сжимать ли трафик SSH сессии (zlib). Полезно на медленных каналах, но тратит процессор с обеих сторон.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public ConnectionSettings setCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Интервал keepalive сообщений серверу (ServerAliveInterval) в секундах, 0 - не отправлять
+     */
+    public int getServerAliveIntervalSeconds() {
+        return serverAliveIntervalSeconds;
+    }
+
+    public ConnectionSettings setServerAliveIntervalSeconds(int serverAliveIntervalSeconds) {
+        if (serverAliveIntervalSeconds < 0) {
+            throw new IllegalArgumentException("Некорректный интервал keepalive: " + serverAliveIntervalSeconds);
+        }
+        this.serverAliveIntervalSeconds = serverAliveIntervalSeconds;
+        return this;
+    }
+
+    /**
+     * Сколько keepalive сообщений подряд может остаться без ответа, прежде чем сессия будет закрыта
+     */
+    public int getServerAliveCountMax() {
+        return serverAliveCountMax;
+    }
+
+    public ConnectionSettings setServerAliveCountMax(int serverAliveCountMax) {
+        if (serverAliveCountMax < 1) {
+            throw new IllegalArgumentException("Некорректное число keepalive сообщений: " + serverAliveCountMax);
+        }
+        this.serverAliveCountMax = serverAliveCountMax;
+        return this;
+    }
+
+    /**
+     * Число попыток переподключения при обрыве соединения, 0 - не переподключаться
+     */
+    public int getReconnectAttempts() {
+        return reconnectAttempts;
+    }
+
+    public ConnectionSettings setReconnectAttempts(int reconnectAttempts) {
+        if (reconnectAttempts < 0) {
+            throw new IllegalArgumentException("Некорректное число попыток переподключения: " + reconnectAttempts);
+        }
+        this.reconnectAttempts = reconnectAttempts;
+        return this;
+    }
+
+    /**
+     * Пауза перед первой попыткой переподключения; удваивается с каждой следующей
+     */
+    public int getReconnectDelayMillis() {
+        return reconnectDelayMillis;
+    }
+
+    public ConnectionSettings setReconnectDelayMillis(int reconnectDelayMillis) {
+        if (reconnectDelayMillis < 0) {
+            throw new IllegalArgumentException("Некорректная пауза переподключения: " + reconnectDelayMillis);
+        }
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        return this;
+    }
+
+    /**
+     * Число SFTP каналов, по которым параллельно передается большой файл; 1 - передавать одним потоком
+     */
+    public int getTransferChannels() {
+        return transferChannels;
+    }
+
+    public ConnectionSettings setTransferChannels(int transferChannels) {
+        if (transferChannels < 1) {
+            throw new IllegalArgumentException("Некорректное число каналов передачи: " + transferChannels);
+        }
+        this.transferChannels = transferChannels;
+        return this;
+    }
+
+    /**
+     * Размер файла в байтах, начиная с которого он передается параллельно по нескольким каналам
+     */
+    public long getParallelTransferThreshold() {
+        return parallelTransferThreshold;
+    }
+
+    public ConnectionSettings setParallelTransferThreshold(long parallelTransferThreshold) {
+        if (parallelTransferThreshold < 0) {
+            throw new IllegalArgumentException("Некорректный порог параллельной передачи: " + parallelTransferThreshold);
+        }
+        this.parallelTransferThreshold = parallelTransferThreshold;
+        return this;
+    }
+
+    /**
+     * Ключ сервера вида login@host:port
+     */
+    public String getKey() {
+        return login + "@" + host + ":" + port;
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
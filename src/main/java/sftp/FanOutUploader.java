@@ -0,0 +1,159 @@
+package sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Параллельная выгрузка одного файла на несколько SFTP серверов.
+ * Каждый сервер обрабатывается отдельной задачей с собственными повторными попытками,
+ * поэтому общее время определяется самым медленным сервером, а не суммой.
+ */
+public class FanOutUploader {
+    public static final int DEFAULT_PARALLELISM = 16;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_RETRY_DELAY_MS = 1_000;
+
+    private final SftpSessionPool pool;
+    private final int parallelism;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+
+    public FanOutUploader(SftpSessionPool pool) {
+        this(pool, DEFAULT_PARALLELISM, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY_MS);
+    }
+
+    /**
+     * @param parallelism максимальное число одновременных выгрузок
+     * @param maxAttempts число попыток для каждого сервера
+     * @param retryDelayMillis пауза перед повтором, удваивается с каждой попыткой
+     */
+    public FanOutUploader(SftpSessionPool pool, int parallelism, int maxAttempts, long retryDelayMillis) {
+        if (parallelism < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Параллельность и число попыток должны быть положительными");
+        }
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Выгружает файл на все серверы
+     * @return результаты в том же порядке, что и серверы
+     */
+    public List<TargetResult> upload(Path localFile, String remotePath, List<ConnectionSettings> targets)
+            throws InterruptedException {
+        ExecutorService executor = createExecutor();
+        Semaphore permits = new Semaphore(parallelism);
+        try {
+            List<Future<TargetResult>> futures = new ArrayList<>(targets.size());
+            for (ConnectionSettings target : targets) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return uploadWithRetry(localFile, remotePath, target);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<TargetResult> results = new ArrayList<>(targets.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new TargetResult(targets.get(i), false, 0, 0, e.getCause().getMessage()));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Выгружает файл во временный файл .part и заменяет им целевой, как SftpClient: пока идет
+     * выгрузка или после ее обрыва читатели видят прежний файл целиком, а не его начало.
+     * Локальный файл всегда распакован; в файл .gz на сервере он выгружается сжатым.
+     */
+    private static void put(ChannelSftp channel, Path localFile, String remotePath) throws Exception {
+        String tempPath = remotePath + ResumableTransfer.PART_SUFFIX;
+        try {
+            if (Gzip.isGzipName(remotePath)) {
+                try (OutputStream out = Gzip.compress(channel.put(tempPath))) {
+                    Files.copy(localFile, out);
+                }
+            } else {
+                channel.put(localFile.toString(), tempPath);
+            }
+            ResumableTransfer.replace(channel, tempPath, remotePath);
+        } catch (Exception e) {
+            removeQuietly(channel, tempPath);
+            throw e;
+        }
+    }
+
+    private static void removeQuietly(ChannelSftp channel, String remotePath) {
+        try {
+            if (ResumableTransfer.statIfExists(channel, remotePath) != null) {
+                channel.rm(remotePath);
+            }
+        } catch (SftpException e) {
+            // канал мог оборваться; недописанный файл заменит следующая выгрузка
+        }
+    }
+
+    private TargetResult uploadWithRetry(Path localFile, String remotePath, ConnectionSettings target)
+            throws InterruptedException {
+        long start = System.currentTimeMillis();
+        String error = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try (SftpSessionPool.PooledChannel pooled = pool.borrow(target)) {
+                try {
+                    put(pooled.getChannel(), localFile, remotePath);
+                    return new TargetResult(target, true, attempt, System.currentTimeMillis() - start, null);
+                } catch (Exception e) {
+                    pooled.invalidate();
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                error = e.getMessage();
+            }
+            if (attempt < maxAttempts) {
+                Thread.sleep(retryDelayMillis << (attempt - 1));
+            }
+        }
+        return new TargetResult(target, false, maxAttempts, System.currentTimeMillis() - start, error);
+    }
+
+    /**
+     * Виртуальные потоки, если JVM их поддерживает (Java 21+), иначе пул обычных потоков.
+     * Число одновременных выгрузок в обоих случаях ограничено семафором.
+     */
+    private ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "sftp-fan-out");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package sftp;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сжатие файла с доменами в формате gzip средствами JDK.
+ * Формат при скачивании определяется по сигнатуре, а не по имени файла.
+ */
+final class Gzip {
+    static final String EXTENSION = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Первые два байта любого gzip потока
+    private static final int MAGIC_1 = 0x1f;
+    private static final int MAGIC_2 = 0x8b;
+
+    private Gzip() {
+    }
+
+    /**
+     * Поток с данными после распаковки, если исходный поток сжат
+     */
+    static Decoded decode(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        boolean compressed = buffered.read() == MAGIC_1 && buffered.read() == MAGIC_2;
+        buffered.reset();
+        return new Decoded(compressed ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered, compressed);
+    }
+
+    /**
+     * Сжимающий поток. Используется быстрый уровень: на JSON он дает почти ту же степень сжатия,
+     * что и уровень по умолчанию, но заметно меньше нагружает процессор.
+     */
+    static OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    /**
+     * Сжат ли локальный файл: проверяется сигнатура, а не имя
+     */
+    static boolean isCompressed(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() == MAGIC_1 && in.read() == MAGIC_2;
+        }
+    }
+
+    /**
+     * Заменяет сжатый файл распакованным
+     */
+    static void decodeInPlace(Path file) throws IOException {
+        Path plain = file.resolveSibling(file.getFileName() + ".plain");
+        try (InputStream in = decode(Files.newInputStream(file)).stream) {
+            Files.copy(in, plain, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(plain, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static boolean isGzipName(String fileName) {
+        return fileName.endsWith(EXTENSION);
+    }
+
+    static final class Decoded {
+        final InputStream stream;
+        final boolean compressed;
+
+        Decoded(InputStream stream, boolean compressed) {
+            this.stream = stream;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package sftp;
+
+import com.jcraft.jsch.SftpATTRS;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Состояние файла на сервере на момент последней синхронизации:
+ * размер и время изменения из SftpATTRS, а также хеш содержимого локальной копии
+ */
+class RemoteFileState {
+    private final String remotePath;
+    private final long size;
+    private final int mtime;
+    private final byte[] contentHash;
+
+    RemoteFileState(String remotePath, SftpATTRS attrs, byte[] contentHash) {
+        this.remotePath = remotePath;
+        this.size = attrs.getSize();
+        this.mtime = attrs.getMTime();
+        this.contentHash = contentHash;
+    }
+
+    String getRemotePath() {
+        return remotePath;
+    }
+
+    /**
+     * Совпадает ли файл на сервере с состоянием на момент синхронизации.
+     * Время изменения хранится с точностью до секунды, поэтому сравнивается вместе с размером.
+     */
+    boolean matchesRemote(String remotePath, SftpATTRS attrs) {
+        return this.remotePath.equals(remotePath) && attrs.getSize() == size && attrs.getMTime() == mtime;
+    }
+
+    boolean matchesContent(byte[] hash) {
+        return Arrays.equals(contentHash, hash);
+    }
+
+    static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
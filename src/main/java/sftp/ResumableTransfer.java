@@ -0,0 +1,197 @@
+package sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import log.Log;
+import log.Logger;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Последовательная передача, которая после обрыва продолжается с места остановки.
+ * Скачивание идет в файл .part рядом с локальной копией, выгрузка - во временный файл .part
+ * на сервере, который по окончании переименовывается в целевой. Точка продолжения хранится
+ * в памяти клиента и переживает переподключение, но не перезапуск процесса.
+ */
+final class ResumableTransfer {
+    private static final Logger LOG = Log.get(ResumableTransfer.class);
+
+    static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Источник выгружаемых данных. При продолжении выгрузки данные порождаются заново,
+     * поэтому для одинакового хеша они должны быть побайтно одинаковыми.
+     */
+    interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // Прерванное скачивание: файл на сервере, его размер и время изменения, сколько байт записано и их хеш
+    private String downloadPath;
+    private long downloadSize;
+    private int downloadMtime;
+    private long downloaded;
+    private MessageDigest downloadDigest;
+    // Прерванная выгрузка: временный файл на сервере и хеш выгружаемых данных
+    private String uploadPath;
+    private byte[] uploadHash;
+
+    /**
+     * Скачивает файл в part. Если предыдущее скачивание того же файла оборвалось, а файл на сервере
+     * с тех пор не изменился, оно продолжается с того же байта.
+     * @return SHA-256 скачанного файла
+     */
+    byte[] download(ChannelSftp channel, String remotePath, SftpATTRS attrs, Path part)
+            throws IOException, SftpException {
+        if (downloadOffset(remotePath, attrs, part) > 0) {
+            LOG.info("Скачивание продолжается с " + downloaded + " из " + downloadSize + " байт");
+        } else {
+            downloadPath = remotePath;
+            downloadSize = attrs.getSize();
+            downloadMtime = attrs.getMTime();
+            downloaded = 0;
+            downloadDigest = RemoteFileState.newDigest();
+            Files.deleteIfExists(part);
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = channel.get(remotePath, null, downloaded);
+             OutputStream out = Files.newOutputStream(part, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                // Точка продолжения сдвигается только после записи, поэтому не опережает файл
+                downloadDigest.update(buffer, 0, read);
+                downloaded += read;
+            }
+        }
+        boolean complete = downloaded == downloadSize;
+        byte[] hash = downloadDigest.digest();
+        downloadPath = null;
+        downloadDigest = null;
+        if (!complete) {
+            throw new IOException("Файл на сервере изменился во время скачивания");
+        }
+        return hash;
+    }
+
+    /**
+     * С какого байта продолжится скачивание файла в part
+     * @return 0, если скачивание начнется заново
+     */
+    long downloadOffset(String remotePath, SftpATTRS attrs, Path part) throws IOException {
+        boolean resume = remotePath.equals(downloadPath) && attrs.getSize() == downloadSize
+                && attrs.getMTime() == downloadMtime && Files.isRegularFile(part) && Files.size(part) == downloaded;
+        return resume ? downloaded : 0;
+    }
+
+    /**
+     * Выгружает данные во временный файл на сервере. Если предыдущая выгрузка тех же данных
+     * оборвалась, уже переданное начало пропускается и запись продолжается в конец файла.
+     * Сколько передано, определяется по размеру временного файла на сервере.
+     */
+    void upload(ChannelSftp channel, String tempPath, byte[] hash, Content content)
+            throws IOException, SftpException {
+        long offset = 0;
+        if (tempPath.equals(uploadPath) && Arrays.equals(hash, uploadHash)) {
+            SftpATTRS part = statIfExists(channel, tempPath);
+            offset = part != null ? part.getSize() : 0;
+            if (offset > 0) {
+                LOG.info("Выгрузка продолжается с " + offset + " байт");
+            }
+        }
+        uploadPath = tempPath;
+        uploadHash = hash;
+
+        try (OutputStream remote = channel.put(tempPath, null,
+                offset > 0 ? ChannelSftp.RESUME : ChannelSftp.OVERWRITE, 0)) {
+            content.writeTo(new SkippingOutputStream(remote, offset));
+        }
+        uploadPath = null;
+        uploadHash = null;
+    }
+
+    /**
+     * Заменяет целевой файл временным. Если сервер поддерживает posix-rename@openssh.com,
+     * JSch использует его, и замена атомарна; иначе целевой файл сначала удаляется.
+     */
+    static void replace(ChannelSftp channel, String tempPath, String remotePath) throws SftpException {
+        try {
+            channel.rename(tempPath, remotePath);
+        } catch (SftpException e) {
+            if (statIfExists(channel, remotePath) == null) {
+                throw e;
+            }
+            channel.rm(remotePath);
+            channel.rename(tempPath, remotePath);
+        }
+    }
+
+    /**
+     * Забывает точки продолжения, например при отключении от сервера
+     */
+    void reset() {
+        downloadPath = null;
+        downloadDigest = null;
+        uploadPath = null;
+        uploadHash = null;
+    }
+
+    static SftpATTRS statIfExists(ChannelSftp channel, String remotePath) throws SftpException {
+        try {
+            return channel.stat(remotePath);
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Пропускает первые skip байт: уже выгруженное начало данных не передается повторно
+     */
+    private static final class SkippingOutputStream extends FilterOutputStream {
+        private long skip;
+
+        SkippingOutputStream(OutputStream out, long skip) {
+            super(out);
+            this.skip = skip;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (skip > 0) {
+                skip--;
+            } else {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (skip >= len) {
+                skip -= len;
+                return;
+            }
+            int skipped = (int) skip;
+            skip = 0;
+            out.write(b, off + skipped, len - skipped);
+        }
+
+        // Поток канала закрывает сама выгрузка, чтобы дождаться подтверждения записи
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package sftp;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import metrics.Metrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Создает аутентифицированные SSH сессии без взаимодействия с пользователем.
+ * Один экземпляр JSch с загруженным known_hosts используется для всех сессий,
+ * поэтому повторное подключение не перечитывает known_hosts.
+ */
+public class SessionFactory {
+    // Быстрое сжатие: JSON сжимается хорошо и на минимальном уровне
+    private static final int COMPRESSION_LEVEL = 1;
+
+    private static SessionFactory shared;
+
+    private final JSch jsch;
+    private final Path knownHostsPath;
+
+    public SessionFactory() throws IOException, JSchException {
+        this.jsch = new JSch();
+        this.knownHostsPath = initKnownHosts(jsch);
+    }
+
+    /**
+     * Общая фабрика процесса, создается при первом обращении
+     */
+    public static synchronized SessionFactory shared() throws IOException, JSchException {
+        if (shared == null) {
+            shared = new SessionFactory();
+        }
+        return shared;
+    }
+
+    /**
+     * Сессия без подключения, для случаев, когда настройки задаются вызывающим кодом
+     */
+    Session createSession(String login, String host, int port) throws JSchException {
+        return jsch.getSession(login, host, port);
+    }
+
+    Path getKnownHostsPath() {
+        return knownHostsPath;
+    }
+
+    public Session openSession(ConnectionSettings settings) throws JSchException {
+        Session session = jsch.getSession(settings.getLogin(), settings.getHost(), settings.getPort());
+        session.setPassword(settings.getPassword());
+        session.setConfig("StrictHostKeyChecking", settings.isStrictHostKeyChecking() ? "yes" : "no");
+        if (settings.isCompression()) {
+            // Сервер выбирает первый поддерживаемый вариант; none оставлен на случай, если zlib не поддерживается
+            session.setConfig("compression.s2c", "zlib@openssh.com,zlib,none");
+            session.setConfig("compression.c2s", "zlib@openssh.com,zlib,none");
+            session.setConfig("compression_level", String.valueOf(COMPRESSION_LEVEL));
+            session.setConfig("zlib", ZlibCompression.class.getName());
+            session.setConfig("zlib@openssh.com", ZlibCompression.class.getName());
+        }
+        connect(session, settings.getConnectTimeoutMillis());
+        keepAlive(session, settings);
+        return session;
+    }
+
+    /**
+     * Подключает сессию и учитывает время подключения в метриках
+     * @param timeoutMillis тайм-аут подключения, 0 - без ограничения
+     */
+    static void connect(Session session, int timeoutMillis) throws JSchException {
+        long started = System.nanoTime();
+        try {
+            session.connect(timeoutMillis);
+        } catch (JSchException e) {
+            Metrics.CONNECT_ERRORS.increment();
+            throw e;
+        }
+        Metrics.CONNECT.recordSince(started);
+    }
+
+    /**
+     * Включает keepalive сообщения серверу: простаивающая сессия не обрывается по тайм-ауту NAT,
+     * а мертвая закрывается после serverAliveCountMax сообщений без ответа.
+     * Интервал задает тайм-аут чтения сокета, поэтому применяется после подключения,
+     * чтобы не заменить им тайм-аут подключения.
+     */
+    static void keepAlive(Session session, ConnectionSettings settings) throws JSchException {
+        if (settings.getServerAliveIntervalSeconds() > 0) {
+            session.setServerAliveInterval(settings.getServerAliveIntervalSeconds() * 1000);
+            session.setServerAliveCountMax(settings.getServerAliveCountMax());
+        }
+    }
+
+    /**
+     * Инициализирует файл known_hosts с учетом кроссплатформенности
+     * @return путь к файлу known_hosts
+     */
+    static Path initKnownHosts(JSch jsch) throws IOException, JSchException {
+        Path sshDir = Paths.get(System.getProperty("user.home"), ".ssh");
+        Path knownHostsPath = sshDir.resolve("known_hosts");
+        boolean unix = !System.getProperty("os.name").toLowerCase().contains("windows");
+
+        // Создаем директорию .ssh если её нет
+        if (!Files.exists(sshDir)) {
+            Files.createDirectories(sshDir);
+            // Устанавливаем права доступа только для владельца на Unix-системах
+            if (unix) {
+                sshDir.toFile().setExecutable(true, true);
+                sshDir.toFile().setWritable(true, true);
+                sshDir.toFile().setReadable(true, true);
+            }
+        }
+
+        // Создаем файл known_hosts если его нет
+        if (!Files.exists(knownHostsPath)) {
+            Files.createFile(knownHostsPath);
+            // Устанавливаем права доступа только для владельца на Unix-системах
+            if (unix) {
+                knownHostsPath.toFile().setWritable(true, true);
+                knownHostsPath.toFile().setReadable(true, true);
+            }
+        }
+
+        jsch.setKnownHosts(knownHostsPath.toString());
+        return knownHostsPath;
+    }
+}
@@ -2,19 +2,51 @@ package sftp;
 
 import cli.InputHandler;
 import com.jcraft.jsch.*;
+import json.FileService;
+import log.Log;
+import log.Logger;
+import metrics.Metrics;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.Properties;
 import java.util.Vector;
 
 
 public class SftpClient {
+    private static final Logger LOG = Log.get(SftpClient.class);
+
     private Session session;
     private ChannelSftp sftpChannel;
     private Path localPath;
     private InputHandler inputHandler;
+    // Состояние файла на сервере при последнем скачивании или выгрузке
+    private RemoteFileState syncedState;
+    // Файл на сервере сжат gzip; локальная копия и данные в памяти всегда хранятся распакованными
+    private boolean remoteCompressed;
+    // Создавать ли новый файл на сервере сжатым (domains.json.gz)
+    private boolean compressNewFile;
+    // Путь к файлу на сервере, заданный в настройках: каталог тогда не просматривается
+    private String configuredRemotePath;
+    // Путь, найденный просмотром каталога, и момент, до которого он считается актуальным
+    private String cachedRemotePath;
+    private boolean remotePathCached;
+    private long remotePathExpiresAt;
+    private long remotePathTtlMillis = DEFAULT_REMOTE_PATH_TTL_MS;
+    // Настройки последнего подключения: по ним соединение восстанавливается после обрыва
+    private ConnectionSettings settings;
+    // Выгрузка, которая могла заменить файл на сервере, но не успела запомнить состояние из-за обрыва:
+    // атрибуты временного файла перед заменой (переименование их сохраняет) и хеш содержимого
+    private RemoteFileState interruptedUpload;
+    // Точки продолжения прерванных передач
+    private final ResumableTransfer resumable = new ResumableTransfer();
+    private final ChunkedTransfer.Progress chunkedProgress = new ChunkedTransfer.Progress();
 
     public SftpClient() {
         this.inputHandler = new InputHandler();
@@ -26,16 +58,38 @@ public class SftpClient {
 
     // Имя файла по умолчанию, если на сервере файл не найден
     private static final String DEFAULT_FILENAME = "domains.json";
+    // Как долго найденный на сервере путь используется без повторного просмотра каталога
+    public static final long DEFAULT_REMOTE_PATH_TTL_MS = 60_000;
 
     /**
-     * Проверяет активно ли SFTP соединение
+     * Проверяет активно ли SFTP соединение и восстанавливает его, если оно оборвалось
      */
-    private void checkConnection() {
-        if (!isConnected()) {
+    private void ensureConnected() {
+        if (!isConnected() && !reconnect()) {
             throw new IllegalStateException("SFTP соединение не установлено");
         }
     }
 
+    private interface Operation<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Выполняет операцию; если она не удалась из-за обрыва соединения, переподключается
+     * и повторяет ее один раз. Ошибки при живом соединении не повторяются.
+     */
+    private <T> T withReconnect(Operation<T> operation) throws Exception {
+        ensureConnected();
+        try {
+            return operation.run();
+        } catch (Exception e) {
+            if (isConnected() || !reconnect()) {
+                throw e;
+            }
+            return operation.run();
+        }
+    }
+
     public boolean isConnected() {
         return session != null && session.isConnected() &&
                 sftpChannel != null && sftpChannel.isConnected();
@@ -46,70 +100,471 @@ public class SftpClient {
      * @return имя найденного файла или null если файл не найден
      */
     private String findJsonFile() throws Exception {
-        checkConnection();
+        ensureConnected();
         try {
+            long started = System.nanoTime();
             Vector<ChannelSftp.LsEntry> list = sftpChannel.ls(".");
+            Metrics.LIST.recordSince(started);
             for (ChannelSftp.LsEntry p : list) {
-                if (!p.getAttrs().isDir() && p.getFilename().endsWith(".json")){
+                String name = p.getFilename();
+                if (!p.getAttrs().isDir() && (name.endsWith(".json") || name.endsWith(".json" + Gzip.EXTENSION))) {
                     return p.getFilename();
                 }
             }
-            System.out.println("Файл с доменами не найден на сервере. Будет создан новый файл при первой записи.");
+            LOG.info("Файл с доменами не найден на сервере. Будет создан новый файл при первой записи.");
         } catch (SftpException e) {
-            System.out.println("Ошибка при поиске файла: " + e.getMessage());
+            // Обрыв соединения не означает, что файла нет: ошибка передается для переподключения
+            if (!isConnected()) {
+                throw e;
+            }
+            LOG.warn("Ошибка при поиске файла: " + e.getMessage());
         }
         return null;
     }
 
     /**
-     * Скачивает файл с доменами с сервера
+     * Путь к файлу на сервере: заданный в настройках или найденный просмотром каталога.
+     * Результат просмотра запоминается на время remotePathTtlMillis.
+     * @return путь или null, если файла на сервере нет
+     */
+    private String resolveRemotePath() throws Exception {
+        if (configuredRemotePath != null) {
+            return configuredRemotePath;
+        }
+        long now = System.currentTimeMillis();
+        if (!remotePathCached || now >= remotePathExpiresAt) {
+            cachedRemotePath = findJsonFile();
+            remotePathCached = true;
+            remotePathExpiresAt = now + remotePathTtlMillis;
+        }
+        return cachedRemotePath;
+    }
+
+    /**
+     * Находит файл на сервере и читает его атрибуты. Если запомненного файла уже нет
+     * (его переименовали или удалили), каталог просматривается заново.
+     * @return файл или null, если файла на сервере нет
+     */
+    private RemoteFile locateRemoteFile() throws Exception {
+        boolean fromCache = configuredRemotePath == null && remotePathCached
+                && System.currentTimeMillis() < remotePathExpiresAt;
+        String remotePath = resolveRemotePath();
+        SftpATTRS attrs = remotePath != null ? statIfExists(remotePath) : null;
+        if (attrs == null && fromCache) {
+            invalidateRemotePath();
+            remotePath = resolveRemotePath();
+            attrs = remotePath != null ? statIfExists(remotePath) : null;
+        }
+        return attrs != null ? new RemoteFile(remotePath, attrs) : null;
+    }
+
+    // Успешная операция продлевает срок, в течение которого путь не нужно искать заново
+    private void rememberRemotePath(String remotePath) {
+        if (configuredRemotePath != null) return;
+        cachedRemotePath = remotePath;
+        remotePathCached = true;
+        remotePathExpiresAt = System.currentTimeMillis() + remotePathTtlMillis;
+    }
+
+    private void invalidateRemotePath() {
+        cachedRemotePath = null;
+        remotePathCached = false;
+    }
+
+    /**
+     * Задает путь к файлу на сервере; каталог при этом не просматривается.
+     * null или пустая строка возвращают поиск файла в каталоге.
+     */
+    public void setRemotePath(String remotePath) {
+        this.configuredRemotePath = remotePath == null || remotePath.trim().isEmpty() ? null : remotePath.trim();
+        invalidateRemotePath();
+    }
+
+    /**
+     * Как долго найденный на сервере путь используется без повторного просмотра каталога
+     */
+    public void setRemotePathTtlMillis(long remotePathTtlMillis) {
+        if (remotePathTtlMillis < 0) {
+            throw new IllegalArgumentException("Время жизни не может быть отрицательным: " + remotePathTtlMillis);
+        }
+        this.remotePathTtlMillis = remotePathTtlMillis;
+        invalidateRemotePath();
+    }
+
+    /**
+     * Скачивает файл с доменами с сервера.
+     * Если файл на сервере и локальная копия не менялись с последней синхронизации, скачивание пропускается.
      * @return путь к локальному файлу или null в случае ошибки
      */
     public String downloadDomainsFile() {
         try {
-            checkConnection();
-            String remotePath = findJsonFile();
-            if (remotePath == null) {
-                System.out.println("На сервере нет файла с доменами");
-                return null;
-            }
+            return withReconnect(this::download);
+        } catch (Exception e) {
+            Metrics.DOWNLOAD_ERRORS.increment();
+            invalidateRemotePath();
+            LOG.error("Ошибка при скачивании файла: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String download() throws Exception {
+        RemoteFile remoteFile = locateRemoteFile();
+        if (remoteFile == null) {
+            LOG.info("На сервере нет файла с доменами");
+            return null;
+        }
 
+        String remotePath = remoteFile.path;
+        SftpATTRS attrs = remoteFile.attrs;
+        if (isUnchanged(remotePath, attrs)) {
+            LOG.info("Файл на сервере не изменился, повторное скачивание не требуется.");
+            return localPath.toString();
+        }
+
+        if (localPath == null || !Files.exists(localPath)) {
             localPath = Files.createTempFile("domains",".json");
             localPath.toFile().deleteOnExit();
+        }
 
-            sftpChannel.get(remotePath, localPath.toString());
-            System.out.println("Файл успешно загружен с сервера.");
-            return localPath.toString();
+        // Скачивание идет в файл .part: локальная копия заменяется только целиком,
+        // а после обрыва скачивание продолжается с того же места
+        Path part = partFile();
+        boolean parallel = isParallel(remotePath, attrs.getSize());
+        // Уже скачанное до обрыва не передается повторно и не учитывается в метрике байт
+        long resumedFrom = parallel
+                ? chunkedProgress.resumeOffset(remotePath, attrs, part)
+                : resumable.downloadOffset(remotePath, attrs, part);
+        long started = System.nanoTime();
+        byte[] hash = parallel
+                ? new ChunkedTransfer(session, settings.getTransferChannels()).download(remotePath, part, chunkedProgress)
+                : resumable.download(sftpChannel, remotePath, attrs, part);
+        remoteCompressed = Gzip.isCompressed(part);
+        if (remoteCompressed) {
+            Gzip.decodeInPlace(part);
+            hash = RemoteFileState.hash(part);
+        }
+        Files.move(part, localPath, StandardCopyOption.REPLACE_EXISTING);
+        Metrics.DOWNLOAD.recordSince(started);
+        Metrics.DOWNLOAD_BYTES.add(attrs.getSize() - resumedFrom);
+        LOG.debug(() -> "Скачано " + attrs.getSize() + " байт из " + remotePath + " за "
+                + (System.nanoTime() - started) / 1_000_000 + " мс");
+        syncedState = new RemoteFileState(remotePath, attrs, hash);
+        rememberRemotePath(remotePath);
+        LOG.info("Файл успешно загружен с сервера.");
+        return localPath.toString();
+    }
+
+    private boolean isUnchanged(String remotePath, SftpATTRS attrs) throws IOException {
+        return syncedState != null && localPath != null && Files.exists(localPath)
+                && syncedState.matchesRemote(remotePath, attrs)
+                && syncedState.matchesContent(RemoteFileState.hash(localPath));
+    }
+
+    /**
+     * Загружает обновленный файл на сервер.
+     * Выгрузка пропускается, если локальная копия не менялась, и отменяется,
+     * если файл на сервере был изменен кем-то другим после скачивания.
+     * @return true если загрузка успешна или не требуется, false в случае ошибки
+     */
+    public boolean uploadFileToServer() {
+        try {
+            return withReconnect(this::uploadFile);
+        } catch (Exception e) {
+            Metrics.UPLOAD_ERRORS.increment();
+            invalidateRemotePath();
+            LOG.error("Ошибка при загрузке файла: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean uploadFile() throws Exception {
+        if (localPath == null || !Files.exists(localPath)) {
+            LOG.warn("Нет файла для загрузки. Сначала скачайте файл.");
+            return false;
+        }
+
+        String remotePath = resolveRemotePath();
+        // Если файла нет на сервере, используем имя по умолчанию
+        if (remotePath == null) {
+            remotePath = newFileName();
+        }
+
+        byte[] hash = RemoteFileState.hash(localPath);
+        Boolean skip = checkBeforeUpload(remotePath, hash);
+        if (skip != null) {
+            return skip;
+        }
+
+        String tempPath = remotePath + ResumableTransfer.PART_SUFFIX;
+        long started = System.nanoTime();
+        if (compressUpload(remotePath)) {
+            resumable.upload(sftpChannel, tempPath, hash, out -> {
+                try (OutputStream compressed = Gzip.compress(out)) {
+                    Files.copy(localPath, compressed);
+                }
+            });
+        } else if (isParallel(remotePath, Files.size(localPath))) {
+            new ChunkedTransfer(session, settings.getTransferChannels()).upload(localPath, tempPath);
+        } else {
+            resumable.upload(sftpChannel, tempPath, hash, out -> Files.copy(localPath, out));
+        }
+        return replaceRemoteFile(tempPath, remotePath, hash, started);
+    }
+
+    /**
+     * Заменяет файл на сервере выгруженным временным файлом. Файл на сервере проверяется еще раз
+     * непосредственно перед заменой: пока шла выгрузка, его мог изменить кто-то другой.
+     * @param started время начала выгрузки (System.nanoTime()) для метрик
+     */
+    private boolean replaceRemoteFile(String tempPath, String remotePath, byte[] hash, long started)
+            throws Exception {
+        Boolean skip = checkBeforeUpload(remotePath, hash);
+        if (skip != null) {
+            sftpChannel.rm(tempPath);
+            return skip;
+        }
+        interruptedUpload = new RemoteFileState(remotePath, sftpChannel.stat(tempPath), hash);
+        SftpATTRS uploaded;
+        try {
+            ResumableTransfer.replace(sftpChannel, tempPath, remotePath);
+            uploaded = sftpChannel.stat(remotePath);
         } catch (Exception e) {
-            System.out.println("Ошибка при скачивании файла: " + e.getMessage());
+            // При живом соединении выгрузка не повторяется, и ее состояние больше не понадобится
+            if (isConnected()) {
+                interruptedUpload = null;
+            }
+            throw e;
+        }
+        Metrics.UPLOAD.recordSince(started);
+        Metrics.UPLOAD_BYTES.add(uploaded.getSize());
+        LOG.debug(() -> "Выгружено " + uploaded.getSize() + " байт в " + remotePath + " за "
+                + (System.nanoTime() - started) / 1_000_000 + " мс");
+        syncedState = new RemoteFileState(remotePath, uploaded, hash);
+        interruptedUpload = null;
+        rememberRemotePath(remotePath);
+        LOG.info("Файл успешно загружен на сервер");
+        return true;
+    }
+
+    /**
+     * Проверяет, можно ли выгружать файл с таким содержимым
+     * @return null если выгрузка нужна, true если файл не изменился, false если файл на сервере изменен другими
+     */
+    private Boolean checkBeforeUpload(String remotePath, byte[] hash) throws SftpException {
+        SftpATTRS current = statIfExists(remotePath);
+        if (syncedState == null || current == null) {
             return null;
         }
+        // Файл заменила наша же выгрузка, которую не успели запомнить: это не чужое изменение.
+        // Если замена не состоялась или файл с тех пор изменили, атрибуты не совпадут.
+        if (interruptedUpload != null && interruptedUpload.matchesRemote(remotePath, current)) {
+            syncedState = interruptedUpload;
+        }
+        interruptedUpload = null;
+        if (!syncedState.matchesRemote(remotePath, current)) {
+            LOG.warn("Файл на сервере был изменен после скачивания. "
+                    + "Выгрузка отменена, чтобы не затереть чужие изменения; скачайте файл заново.");
+            return false;
+        }
+        if (syncedState.matchesContent(hash)) {
+            LOG.info("Файл не изменился, выгрузка не требуется");
+            return true;
+        }
+        return null;
     }
 
     /**
-     * Загружает обновленный файл на сервер
-     * @return true если загрузка успешна, false в случае ошибки
+     * Читает файл с доменами с сервера прямо в память, без временного файла на диске
+     * @return данные или null в случае ошибки
      */
-    public boolean uploadFileToServer() {
+    public FileService loadDomains() {
         try {
-            checkConnection();
+            return withReconnect(this::load);
+        } catch (Exception e) {
+            Metrics.DOWNLOAD_ERRORS.increment();
+            invalidateRemotePath();
+            LOG.error("Ошибка при скачивании файла: " + e.getMessage());
+            return null;
+        }
+    }
 
-            if (localPath == null || !Files.exists(localPath)) {
-                System.out.println("Нет файла для загрузки. Сначала скачайте файл.");
-                return false;
+    private FileService load() throws Exception {
+        RemoteFile remoteFile = locateRemoteFile();
+        if (remoteFile == null) {
+            LOG.info("На сервере нет файла с доменами");
+            return null;
+        }
+
+        String remotePath = remoteFile.path;
+        SftpATTRS attrs = remoteFile.attrs;
+        MessageDigest digest = RemoteFileState.newDigest();
+        FileService fileService;
+        long started = System.nanoTime();
+        // Поток канала закрывается, даже если чтение сигнатуры gzip завершится ошибкой
+        try (InputStream remote = sftpChannel.get(remotePath)) {
+            Gzip.Decoded decoded = Gzip.decode(remote);
+            remoteCompressed = decoded.compressed;
+            // Хеш считается по распакованным данным, как и для локальной копии
+            try (InputStream in = new DigestInputStream(decoded.stream, digest)) {
+                fileService = FileService.read(in);
+                // Хеш считается по всему файлу, включая то, что парсер не дочитал после массива
+                byte[] rest = new byte[8192];
+                while (in.read(rest) != -1) {
+                    continue;
+                }
+            }
+        }
+        Metrics.DOWNLOAD.recordSince(started);
+        Metrics.DOWNLOAD_BYTES.add(attrs.getSize());
+        syncedState = new RemoteFileState(remotePath, attrs, digest.digest());
+        rememberRemotePath(remotePath);
+        LOG.info("Файл успешно загружен с сервера.");
+        return fileService;
+    }
+
+    /**
+     * Изменился ли файл на сервере с последней синхронизации
+     */
+    public boolean hasRemoteChanged() {
+        if (syncedState == null) return true;
+        try {
+            return withReconnect(() -> {
+                SftpATTRS current = statIfExists(syncedState.getRemotePath());
+                return current == null || !syncedState.matchesRemote(syncedState.getRemotePath(), current);
+            });
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Выгружает данные на сервер прямо из памяти, записывая JSON в поток SFTP канала.
+     * Проверки те же, что и в uploadFileToServer.
+     * @return true если загрузка успешна или не требуется, false в случае ошибки
+     */
+    public boolean uploadDomains(FileService fileService) {
+        try {
+            return withReconnect(() -> upload(fileService));
+        } catch (Exception e) {
+            Metrics.UPLOAD_ERRORS.increment();
+            invalidateRemotePath();
+            LOG.error("Ошибка при загрузке файла: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean upload(FileService fileService) throws Exception {
+        String remotePath = syncedState != null ? syncedState.getRemotePath() : resolveRemotePath();
+        if (remotePath == null) {
+            remotePath = newFileName();
+        }
+
+        // Хеш считается отдельным проходом без записи: это дешевле, чем выгружать неизмененный файл
+        MessageDigest digest = RemoteFileState.newDigest();
+        try (OutputStream hashOnly = new DigestOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
             }
 
-            String remotePath = findJsonFile();
-            // Если файла нет на сервере, используем имя по умолчанию
-            if (remotePath == null) {
-                remotePath = DEFAULT_FILENAME;
+            @Override
+            public void write(byte[] b, int off, int len) {
             }
+        }, digest)) {
+            fileService.writeTo(hashOnly);
+        }
+        byte[] hash = digest.digest();
+        Boolean skip = checkBeforeUpload(remotePath, hash);
+        if (skip != null) {
+            return skip;
+        }
 
-            sftpChannel.put(localPath.toString(), remotePath);
-            System.out.println("Файл успешно загружен на сервер");
+        String tempPath = remotePath + ResumableTransfer.PART_SUFFIX;
+        boolean compress = compressUpload(remotePath);
+        long started = System.nanoTime();
+        resumable.upload(sftpChannel, tempPath, hash, out -> {
+            if (compress) {
+                try (OutputStream compressed = Gzip.compress(out)) {
+                    fileService.writeTo(compressed);
+                }
+            } else {
+                fileService.writeTo(out);
+            }
+        });
+        return replaceRemoteFile(tempPath, remotePath, hash, started);
+    }
+
+    /**
+     * Создавать ли новый файл на сервере сжатым gzip (domains.json.gz). Существующий файл
+     * выгружается в том формате, в котором был скачан.
+     */
+    public void setCompressNewFile(boolean compressNewFile) {
+        this.compressNewFile = compressNewFile;
+    }
+
+    private String newFileName() {
+        return compressNewFile ? DEFAULT_FILENAME + Gzip.EXTENSION : DEFAULT_FILENAME;
+    }
+
+    private Path partFile() {
+        return localPath.resolveSibling(localPath.getFileName() + ResumableTransfer.PART_SUFFIX);
+    }
+
+    /**
+     * Передавать ли файл параллельно по нескольким каналам. Сжатый поток делится на части
+     * только целиком, поэтому файлы .gz всегда передаются одним потоком.
+     */
+    private boolean isParallel(String remotePath, long size) {
+        return settings != null && settings.getTransferChannels() > 1
+                && size >= settings.getParallelTransferThreshold() && !Gzip.isGzipName(remotePath);
+    }
+
+    // Сохраняем формат файла на сервере: сжатый остается сжатым
+    private boolean compressUpload(String remotePath) {
+        boolean known = syncedState != null && syncedState.getRemotePath().equals(remotePath);
+        return known ? remoteCompressed : Gzip.isGzipName(remotePath);
+    }
+
+    /**
+     * Имя файла на сервере, с которым выполнялась последняя синхронизация
+     */
+    public String getRemoteFileName() {
+        if (syncedState != null) return syncedState.getRemotePath();
+        return configuredRemotePath != null ? configuredRemotePath : DEFAULT_FILENAME;
+    }
+
+    private SftpATTRS statIfExists(String remotePath) throws SftpException {
+        try {
+            return sftpChannel.stat(remotePath);
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Подключается к SFTP серверу без вопросов пользователю:
+     * политика проверки ключа хоста берется из настроек
+     * @return true если подключение успешно, false в случае ошибки
+     */
+    public boolean connect(ConnectionSettings settings) {
+        closeConnection();
+        invalidateRemotePath();
+        try {
+            open(settings);
+            this.settings = settings;
+
+            LOG.info("Успешное подключение к SFTP серверу");
             return true;
+        } catch (JSchException e) {
+            LOG.error("Ошибка подключения: " + e.getMessage());
+            if (e.getMessage().contains("UnknownHostKey")) {
+                LOG.warn("Подсказка: Проверьте файл known_hosts или отключите проверку ключей хоста");
+            }
+            return false;
         } catch (Exception e) {
-            System.out.println("Ошибка при загрузке файла: " + e.getMessage());
+            LOG.error("Неизвестная ошибка: " + e.getMessage());
             return false;
         }
     }
@@ -119,44 +574,23 @@ public class SftpClient {
      * @return true если подключение успешно, false в случае ошибки
      */
     public boolean connectToSftpServer(String address, String port, String login, String password) {
+        closeConnection();
+        invalidateRemotePath();
         try {
             int portNumber = Integer.parseInt(port);
-            JSch jsch = new JSch();
-            
-            // Инициализация файла known_hosts с учетом кроссплатформенности
+            ConnectionSettings settings = new ConnectionSettings(address, portNumber, login, password);
+
+            // known_hosts загружается один раз за процесс и используется всеми подключениями
+            SessionFactory sessionFactory;
             try {
-                Path sshDir = Paths.get(System.getProperty("user.home"), ".ssh");
-                Path knownHostsPath = sshDir.resolve("known_hosts");
-                
-                // Создаем директорию .ssh если её нет
-                if (!Files.exists(sshDir)) {
-                    Files.createDirectories(sshDir);
-                    // Устанавливаем права доступа только для владельца на Unix-системах
-                    if (!System.getProperty("os.name").toLowerCase().contains("windows")) {
-                        sshDir.toFile().setExecutable(true, true);
-                        sshDir.toFile().setWritable(true, true);
-                        sshDir.toFile().setReadable(true, true);
-                    }
-                }
-                
-                // Создаем файл known_hosts если его нет
-                if (!Files.exists(knownHostsPath)) {
-                    Files.createFile(knownHostsPath);
-                    // Устанавливаем права доступа только для владельца на Unix-системах
-                    if (!System.getProperty("os.name").toLowerCase().contains("windows")) {
-                        knownHostsPath.toFile().setWritable(true, true);
-                        knownHostsPath.toFile().setReadable(true, true);
-                    }
-                }
-                
-                jsch.setKnownHosts(knownHostsPath.toString());
-                System.out.println("Файл known_hosts инициализирован: " + knownHostsPath);
+                sessionFactory = SessionFactory.shared();
+                LOG.info("Файл known_hosts инициализирован: " + sessionFactory.getKnownHostsPath());
             } catch (Exception e) {
-                System.out.println("Ошибка при инициализации файла known_hosts: " + e.getMessage());
+                LOG.error("Ошибка при инициализации файла known_hosts: " + e.getMessage());
                 return false;
             }
 
-            session = jsch.getSession(login, address, portNumber);
+            session = sessionFactory.createSession(login, address, portNumber);
             session.setPassword(password);
 
             String choice = inputHandler.getNonEmptyInput("Включить проверку ключей хоста? (да/нет):")
@@ -206,42 +640,114 @@ public class SftpClient {
                 }
             });
 
-            session.connect();
+            SessionFactory.connect(session, 0);
+            SessionFactory.keepAlive(session, settings);
             sftpChannel = (ChannelSftp) session.openChannel("sftp");
             sftpChannel.connect();
+            // Ключ хоста к этому моменту проверен или принят пользователем и сохранен в known_hosts,
+            // поэтому при переподключении вопрос не задается
+            this.settings = settings.setStrictHostKeyChecking(!"нет".equals(choice));
 
-            System.out.println("Успешное подключение к SFTP серверу");
+            LOG.info("Успешное подключение к SFTP серверу");
             return true;
         } catch (JSchException e) {
-            System.out.println("Ошибка подключения: " + e.getMessage());
+            LOG.error("Ошибка подключения: " + e.getMessage());
             if (e.getMessage().contains("UnknownHostKey")) {
-                System.out.println("Подсказка: Проверьте файл known_hosts или отключите проверку ключей хоста");
+                LOG.warn("Подсказка: Проверьте файл known_hosts или отключите проверку ключей хоста");
             }
             return false;
         } catch (Exception e) {
-            System.out.println("Неизвестная ошибка: " + e.getMessage());
+            LOG.error("Неизвестная ошибка: " + e.getMessage());
             return false;
         }
     }
 
+    private void open(ConnectionSettings settings) throws Exception {
+        Session opened = SessionFactory.shared().openSession(settings);
+        try {
+            ChannelSftp channel = (ChannelSftp) opened.openChannel("sftp");
+            channel.connect(settings.getConnectTimeoutMillis());
+            session = opened;
+            sftpChannel = channel;
+        } catch (JSchException e) {
+            opened.disconnect();
+            throw e;
+        }
+    }
+
     /**
-     * Отключается от сервера и очищает временные файлы
+     * Восстанавливает соединение по настройкам последнего подключения. Попытки повторяются
+     * с паузой, которая удваивается с каждой попыткой. Состояние синхронизации и локальная
+     * копия файла сохраняются.
+     * @return true если соединение восстановлено
      */
-    public void disconnect() {
-        try {
-            if (localPath != null && Files.exists(localPath)) {
-                Files.delete(localPath);
+    public boolean reconnect() {
+        if (settings == null) {
+            return false;
+        }
+        closeConnection();
+        int attempts = settings.getReconnectAttempts();
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                open(settings);
+                LOG.info("Соединение с SFTP сервером восстановлено");
+                return true;
+            } catch (Exception e) {
+                LOG.warn("Попытка переподключения " + attempt + " из " + attempts
+                        + " не удалась: " + e.getMessage());
+            }
+            if (attempt < attempts) {
+                try {
+                    Thread.sleep((long) settings.getReconnectDelayMillis() << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
             }
-        } catch (IOException e) {
-            System.out.println("Ошибка при удалении временного файла: " + e.getMessage());
         }
+        return false;
+    }
 
+    private void closeConnection() {
         if (sftpChannel != null && sftpChannel.isConnected()) {
             sftpChannel.disconnect();
         }
         if (session != null && session.isConnected()) {
             session.disconnect();
         }
-        System.out.println("Отключение от SFTP сервера выполнено");
+    }
+
+    /**
+     * Отключается от сервера и очищает временные файлы
+     */
+    public void disconnect() {
+        try {
+            if (localPath != null) {
+                Files.deleteIfExists(localPath);
+                Files.deleteIfExists(partFile());
+            }
+        } catch (IOException e) {
+            LOG.warn("Ошибка при удалении временного файла: " + e.getMessage());
+        }
+        syncedState = null;
+        remoteCompressed = false;
+        interruptedUpload = null;
+        resumable.reset();
+        chunkedProgress.reset();
+        settings = null;
+        invalidateRemotePath();
+
+        closeConnection();
+        LOG.info("Отключение от SFTP сервера выполнено");
+    }
+
+    private static final class RemoteFile {
+        final String path;
+        final SftpATTRS attrs;
+
+        RemoteFile(String path, SftpATTRS attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,378 @@
+package sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограниченный пул аутентифицированных SSH сессий, в каждой из которых открывается несколько SFTP каналов.
+ * Канал ChannelSftp не потокобезопасен, поэтому выдается одному потоку и возвращается в пул после работы:
+ * <pre>
+ * try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+ *     pooled.getChannel().get(remotePath, localPath);
+ * }
+ * </pre>
+ * Простаивающие сессии закрываются фоновой задачей, которая также проверяет живость оставшихся.
+ */
+public class SftpSessionPool implements Closeable {
+    public static final int DEFAULT_MAX_SESSIONS = 4;
+    public static final int DEFAULT_MAX_CHANNELS_PER_SESSION = 4;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+    public static final long DEFAULT_BORROW_TIMEOUT_MS = 30_000;
+
+    private final SessionFactory sessionFactory;
+    private final int maxSessions;
+    private final int maxChannelsPerSession;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final Map<String, ServerPool> servers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public SftpSessionPool(SessionFactory sessionFactory) {
+        this(sessionFactory, DEFAULT_MAX_SESSIONS, DEFAULT_MAX_CHANNELS_PER_SESSION,
+                DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_BORROW_TIMEOUT_MS);
+    }
+
+    /**
+     * @param maxSessions максимальное число сессий к одному серверу
+     * @param maxChannelsPerSession максимальное число каналов в одной сессии
+     * @param idleTimeoutMillis время простоя, после которого сессия закрывается; 0 - не закрывать
+     * @param borrowTimeoutMillis время ожидания свободного канала
+     */
+    public SftpSessionPool(SessionFactory sessionFactory, int maxSessions, int maxChannelsPerSession,
+                           long idleTimeoutMillis, long borrowTimeoutMillis) {
+        if (maxSessions < 1 || maxChannelsPerSession < 1) {
+            throw new IllegalArgumentException("Размеры пула должны быть положительными");
+        }
+        this.sessionFactory = sessionFactory;
+        this.maxSessions = maxSessions;
+        this.maxChannelsPerSession = maxChannelsPerSession;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+
+        if (idleTimeoutMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "sftp-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(idleTimeoutMillis / 2, 1);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Выдает свободный канал к серверу, при необходимости открывая новый канал или новую сессию.
+     * Если лимиты исчерпаны, ждет возврата канала другим потоком.
+     * @throws JSchException если подключиться не удалось или свободный канал не появился за отведенное время
+     */
+    public PooledChannel borrow(ConnectionSettings settings) throws JSchException, InterruptedException {
+        ServerPool server = servers.computeIfAbsent(poolKey(settings), key -> new ServerPool(settings));
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+
+        while (true) {
+            PooledSession target = null;
+            boolean openSession = false;
+
+            synchronized (server) {
+                checkOpen();
+                PooledChannel idle = server.takeIdleChannel();
+                if (idle != null) {
+                    return idle;
+                }
+                server.removeDeadSessions();
+
+                for (PooledSession pooled : server.sessions) {
+                    if (!pooled.probing && pooled.session.isConnected() && pooled.total() < maxChannelsPerSession) {
+                        pooled.borrowed++;
+                        target = pooled;
+                        break;
+                    }
+                }
+                if (target == null && server.sessions.size() + server.connecting < maxSessions) {
+                    server.connecting++;
+                    openSession = true;
+                }
+                if (target == null && !openSession) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new JSchException("Нет свободных SFTP каналов к серверу " + settings.getKey());
+                    }
+                    server.wait(remaining);
+                    continue;
+                }
+            }
+
+            // Сетевые операции выполняются вне блокировки, место в пуле уже зарезервировано
+            if (openSession) {
+                target = server.openSession();
+            }
+            return server.openChannel(target);
+        }
+    }
+
+    /**
+     * Закрывает сессии, простаивающие дольше idleTimeout, и проверяет живость остальных.
+     * Проверка живости идет по сети, поэтому выполняется вне блокировки: на время проверки
+     * сессия помечается и не выдается, а полуоборванное соединение не задерживает borrow.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (ServerPool server : servers.values()) {
+            List<PooledSession> probes = new ArrayList<>();
+            synchronized (server) {
+                Iterator<PooledSession> iterator = server.sessions.iterator();
+                while (iterator.hasNext()) {
+                    PooledSession pooled = iterator.next();
+                    if (pooled.borrowed > 0 || pooled.probing) continue;
+                    boolean expired = idleTimeoutMillis > 0 && now - pooled.lastUsed >= idleTimeoutMillis;
+                    if (expired || !pooled.session.isConnected()) {
+                        pooled.close();
+                        iterator.remove();
+                    } else {
+                        pooled.probing = true;
+                        probes.add(pooled);
+                    }
+                }
+                server.notifyAll();
+            }
+            if (probes.isEmpty()) continue;
+
+            List<PooledSession> dead = new ArrayList<>();
+            for (PooledSession pooled : probes) {
+                if (!isAlive(pooled.session)) {
+                    dead.add(pooled);
+                }
+            }
+            synchronized (server) {
+                for (PooledSession pooled : probes) {
+                    pooled.probing = false;
+                }
+                for (PooledSession pooled : dead) {
+                    pooled.close();
+                    server.sessions.remove(pooled);
+                }
+                server.notifyAll();
+            }
+        }
+    }
+
+    private static boolean isAlive(Session session) {
+        if (!session.isConnected()) return false;
+        try {
+            session.sendKeepAliveMsg();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Количество открытых сессий к серверу
+     */
+    public int getSessionCount(ConnectionSettings settings) {
+        ServerPool server = servers.get(poolKey(settings));
+        if (server == null) return 0;
+        synchronized (server) {
+            return server.sessions.size();
+        }
+    }
+
+    // Сессии с разными учетными данными к одному серверу не должны смешиваться
+    private static String poolKey(ConnectionSettings settings) {
+        return settings.getKey() + "\n" + settings.getPassword();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Пул SFTP сессий закрыт");
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        for (ServerPool server : servers.values()) {
+            synchronized (server) {
+                for (PooledSession pooled : server.sessions) {
+                    pooled.close();
+                }
+                server.sessions.clear();
+                server.notifyAll();
+            }
+        }
+        servers.clear();
+    }
+
+    /**
+     * Сессии к одному серверу. Все поля защищены блокировкой на экземпляре.
+     */
+    private class ServerPool {
+        private final ConnectionSettings settings;
+        private final List<PooledSession> sessions = new ArrayList<>();
+        private int connecting;
+
+        ServerPool(ConnectionSettings settings) {
+            this.settings = settings;
+        }
+
+        PooledChannel takeIdleChannel() {
+            for (PooledSession pooled : sessions) {
+                if (pooled.probing) continue;
+                while (!pooled.idle.isEmpty()) {
+                    ChannelSftp channel = pooled.idle.pollFirst();
+                    if (channel.isConnected() && pooled.session.isConnected()) {
+                        pooled.borrowed++;
+                        return new PooledChannel(this, pooled, channel);
+                    }
+                    channel.disconnect();
+                }
+            }
+            return null;
+        }
+
+        void removeDeadSessions() {
+            Iterator<PooledSession> iterator = sessions.iterator();
+            while (iterator.hasNext()) {
+                PooledSession pooled = iterator.next();
+                if (!pooled.session.isConnected() && pooled.borrowed == 0) {
+                    pooled.close();
+                    iterator.remove();
+                }
+            }
+        }
+
+        PooledSession openSession() throws JSchException {
+            Session session;
+            try {
+                session = sessionFactory.openSession(settings);
+            } catch (JSchException | RuntimeException e) {
+                synchronized (this) {
+                    connecting--;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                connecting--;
+                PooledSession pooled = new PooledSession(session);
+                pooled.borrowed++;
+                if (closed) {
+                    pooled.close();
+                    checkOpen();
+                }
+                sessions.add(pooled);
+                return pooled;
+            }
+        }
+
+        PooledChannel openChannel(PooledSession pooled) throws JSchException {
+            try {
+                ChannelSftp channel = (ChannelSftp) pooled.session.openChannel("sftp");
+                channel.connect(settings.getConnectTimeoutMillis());
+                return new PooledChannel(this, pooled, channel);
+            } catch (JSchException | RuntimeException e) {
+                synchronized (this) {
+                    pooled.borrowed--;
+                    notifyAll();
+                }
+                throw e;
+            }
+        }
+
+        void release(PooledSession pooled, ChannelSftp channel, boolean broken) {
+            synchronized (this) {
+                pooled.borrowed--;
+                pooled.lastUsed = System.currentTimeMillis();
+                if (broken || closed || !channel.isConnected() || !pooled.session.isConnected()) {
+                    channel.disconnect();
+                } else {
+                    // Последний возвращенный канал выдается первым, редко используемые успевают устареть
+                    pooled.idle.addFirst(channel);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private static class PooledSession {
+        private final Session session;
+        private final Deque<ChannelSftp> idle = new ArrayDeque<>();
+        // Выданные каналы и каналы в процессе открытия
+        private int borrowed;
+        private long lastUsed = System.currentTimeMillis();
+        // Идет проверка живости: сессия не выдается, пока проверка не закончится
+        private boolean probing;
+
+        PooledSession(Session session) {
+            this.session = session;
+        }
+
+        int total() {
+            return borrowed + idle.size();
+        }
+
+        void close() {
+            for (ChannelSftp channel : idle) {
+                channel.disconnect();
+            }
+            idle.clear();
+            session.disconnect();
+        }
+    }
+
+    /**
+     * Канал, выданный пулом. Должен быть возвращен вызовом close().
+     */
+    public static class PooledChannel implements AutoCloseable {
+        private final ServerPool server;
+        private final PooledSession pooled;
+        private final ChannelSftp channel;
+        private boolean broken;
+        private boolean released;
+
+        private PooledChannel(ServerPool server, PooledSession pooled, ChannelSftp channel) {
+            this.server = server;
+            this.pooled = pooled;
+            this.channel = channel;
+        }
+
+        public ChannelSftp getChannel() {
+            if (released) {
+                throw new IllegalStateException("Канал уже возвращен в пул");
+            }
+            return channel;
+        }
+
+        /**
+         * Помечает канал неисправным: при возврате он будет закрыт, а не выдан повторно
+         */
+        public void invalidate() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            server.release(pooled, channel, broken);
+        }
+    }
+}
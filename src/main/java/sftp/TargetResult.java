@@ -0,0 +1,49 @@
+package sftp;
+
+/**
+ * Результат выгрузки файла на один сервер
+ */
+public class TargetResult {
+    private final ConnectionSettings target;
+    private final boolean success;
+    private final int attempts;
+    private final long durationMillis;
+    private final String error;
+
+    TargetResult(ConnectionSettings target, boolean success, int attempts, long durationMillis, String error) {
+        this.target = target;
+        this.success = success;
+        this.attempts = attempts;
+        this.durationMillis = durationMillis;
+        this.error = error;
+    }
+
+    public ConnectionSettings getTarget() {
+        return target;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Сообщение последней ошибки или null при успехе
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        String status = success ? "успешно" : "ошибка: " + error;
+        return target.getKey() + " - " + status + " (попыток: " + attempts + ", " + durationMillis + " мс)";
+    }
+}
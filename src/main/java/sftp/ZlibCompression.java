@@ -0,0 +1,83 @@
+package sftp;
+
+import com.jcraft.jsch.Compression;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие SSH трафика (zlib) на Deflater/Inflater из JDK. Встроенная в JSch реализация
+ * требует отдельной библиотеки jzlib. JSch создает класс по имени, поэтому он публичный.
+ */
+public class ZlibCompression implements Compression {
+    private static final int BUFFER_SIZE = 4096;
+    // Запас под MAC и выравнивание пакета, который JSch дописывает после сжатых данных
+    private static final int BUFFER_MARGIN = 32 + 20;
+
+    private Deflater deflater;
+    private Inflater inflater;
+    private final byte[] chunk = new byte[BUFFER_SIZE];
+    private byte[] inflated = new byte[BUFFER_SIZE];
+
+    @Override
+    public void init(int type, int level) {
+        if (type == DEFLATER) {
+            deflater = new Deflater(level);
+        } else if (type == INFLATER) {
+            inflater = new Inflater();
+        }
+    }
+
+    /**
+     * Сжимает buf[start, length[0]) и кладет результат в тот же буфер с позиции start
+     * @return буфер с результатом, length[0] - конец сжатых данных
+     */
+    @Override
+    public byte[] compress(byte[] buf, int start, int[] length) {
+        deflater.setInput(Arrays.copyOfRange(buf, start, length[0]));
+        byte[] output = buf;
+        int end = start;
+        int written;
+        // Пакет должен распаковываться сразу, поэтому каждый сбрасывается SYNC_FLUSH
+        do {
+            written = deflater.deflate(chunk, 0, BUFFER_SIZE, Deflater.SYNC_FLUSH);
+            if (output.length < end + written + BUFFER_MARGIN) {
+                output = Arrays.copyOf(output, (end + written + BUFFER_MARGIN) * 2);
+            }
+            System.arraycopy(chunk, 0, output, end, written);
+            end += written;
+        } while (written == BUFFER_SIZE);
+        length[0] = end;
+        return output;
+    }
+
+    /**
+     * Распаковывает length[0] байт с позиции start и кладет результат в тот же буфер с позиции start
+     * @return буфер с результатом, length[0] - длина распакованных данных, или null при ошибке
+     */
+    @Override
+    public byte[] uncompress(byte[] buffer, int start, int[] length) {
+        inflater.setInput(buffer, start, length[0]);
+        int end = 0;
+        try {
+            int read;
+            while ((read = inflater.inflate(chunk)) > 0) {
+                if (inflated.length < end + read) {
+                    inflated = Arrays.copyOf(inflated, Math.max(inflated.length * 2, end + read));
+                }
+                System.arraycopy(chunk, 0, inflated, end, read);
+                end += read;
+            }
+        } catch (DataFormatException e) {
+            return null;
+        }
+        byte[] output = buffer;
+        if (output.length < start + end) {
+            output = Arrays.copyOf(buffer, start + end);
+        }
+        System.arraycopy(inflated, 0, output, start, end);
+        length[0] = end;
+        return output;
+    }
+}
@@ -0,0 +1,81 @@
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import sftp.ChunkedTransfer;
+import sftp.ConnectionSettings;
+import sftp.SessionFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+
+public class ChunkedTransferTest {
+    private static final String REMOTE_FILE = "chunked_test.bin";
+
+    private final ConnectionSettings settings =
+            new ConnectionSettings("localhost", 22, "name", "pass").setStrictHostKeyChecking(false);
+    private Session session;
+    private Path source;
+    private Path target;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        session = new SessionFactory().openSession(settings);
+        source = Files.createTempFile("chunked_source", ".bin");
+        target = Files.createTempFile("chunked_target", ".bin");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+        channel.connect();
+        try {
+            channel.rm(REMOTE_FILE);
+        } catch (Exception e) {
+            // файл мог не создаться
+        }
+        session.disconnect();
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(data);
+        Files.write(source, data);
+
+        ChunkedTransfer transfer = new ChunkedTransfer(session, 4);
+        transfer.upload(source, REMOTE_FILE);
+        byte[] hash = transfer.download(REMOTE_FILE, target);
+
+        Assert.assertEquals(Files.readAllBytes(target), data, "Собранный файл должен совпадать с исходным");
+        Assert.assertEquals(hash, MessageDigest.getInstance("SHA-256").digest(data),
+                "Возвращается хеш собранного файла");
+    }
+
+    @Test
+    public void testDownloadOverwritesLongerLocalFile() throws Exception {
+        Files.write(source, "short".getBytes());
+        Files.write(target, new byte[4096]);
+
+        ChunkedTransfer transfer = new ChunkedTransfer(session, 8);
+        transfer.upload(source, REMOTE_FILE);
+        transfer.download(REMOTE_FILE, target);
+
+        Assert.assertEquals(new String(Files.readAllBytes(target)), "short",
+                "Локальный файл должен получить размер файла на сервере");
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        ChunkedTransfer transfer = new ChunkedTransfer(session, 4);
+        transfer.upload(source, REMOTE_FILE);
+        transfer.download(REMOTE_FILE, target);
+        Assert.assertEquals(Files.size(target), 0);
+    }
+}
@@ -0,0 +1,114 @@
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import sftp.ConnectionSettings;
+import sftp.FanOutUploader;
+import sftp.SessionFactory;
+import sftp.SftpSessionPool;
+import sftp.TargetResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+public class FanOutUploaderTest {
+    private final ConnectionSettings target =
+            new ConnectionSettings("localhost", 22, "name", "pass").setStrictHostKeyChecking(false);
+    private final ConnectionSettings invalidTarget =
+            new ConnectionSettings("localhost", 22, "name", "fake").setStrictHostKeyChecking(false);
+
+    @Test
+    public void testResultPerTarget() throws Exception {
+        Path file = Files.createTempFile("fan_out", ".json");
+        Files.write(file, "{\"addresses\": []}".getBytes());
+
+        try (SftpSessionPool pool = new SftpSessionPool(new SessionFactory())) {
+            FanOutUploader uploader = new FanOutUploader(pool, 4, 2, 10);
+            List<TargetResult> results = uploader.upload(file, "fan_out_test.json", Arrays.asList(target, invalidTarget));
+
+            Assert.assertEquals(results.size(), 2, "Результат должен быть по каждому серверу");
+            Assert.assertTrue(results.get(0).isSuccess(), "Выгрузка на доступный сервер должна быть успешной");
+            Assert.assertEquals(results.get(0).getAttempts(), 1);
+            Assert.assertFalse(results.get(1).isSuccess(), "Выгрузка с неверным паролем должна завершиться ошибкой");
+            Assert.assertEquals(results.get(1).getAttempts(), 2, "Неудачная выгрузка должна повторяться");
+            Assert.assertNotNull(results.get(1).getError());
+        }
+    }
+
+    @Test
+    public void testGzipRemoteName() throws Exception {
+        String json = "{\"addresses\": [{\"domain\": \"gzip.com\", \"ip\": \"10.0.0.1\"}]}";
+        Path file = Files.createTempFile("fan_out", ".json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        ConnectionSettings compressed =
+                new ConnectionSettings("localhost", 22, "name", "pass").setStrictHostKeyChecking(false).setCompression(true);
+
+        try (SftpSessionPool pool = new SftpSessionPool(new SessionFactory())) {
+            FanOutUploader uploader = new FanOutUploader(pool, 1, 1, 10);
+            List<TargetResult> results = uploader.upload(file, "fan_out_test.json.gz", Collections.singletonList(compressed));
+            Assert.assertTrue(results.get(0).isSuccess(), "Выгрузка со сжатием сессии должна быть успешной");
+
+            try (SftpSessionPool.PooledChannel pooled = pool.borrow(target)) {
+                byte[] raw = read(pooled.getChannel().get("fan_out_test.json.gz"));
+                Assert.assertEquals(raw[0] & 0xFF, 0x1f, "Файл .gz на сервере должен быть сжат");
+                Assert.assertEquals(raw[1] & 0xFF, 0x8b);
+                byte[] unpacked = read(new GZIPInputStream(new ByteArrayInputStream(raw)));
+                Assert.assertEquals(new String(unpacked, StandardCharsets.UTF_8), json);
+                pooled.getChannel().rm("fan_out_test.json.gz");
+            }
+        }
+    }
+
+    @Test
+    public void testFailedUploadKeepsRemoteFile() throws Exception {
+        String json = "{\"addresses\": [{\"domain\": \"intact.com\", \"ip\": \"10.0.0.2\"}]}";
+        Path file = Files.createTempFile("fan_out", ".json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        // Каталог вместо файла: чтение падает, когда файл на сервере уже открыт на запись
+        Path unreadable = Files.createTempDirectory("fan_out");
+
+        try (SftpSessionPool pool = new SftpSessionPool(new SessionFactory())) {
+            FanOutUploader uploader = new FanOutUploader(pool, 1, 1, 10);
+            Assert.assertTrue(uploader.upload(file, "fan_out_intact.json.gz", Collections.singletonList(target))
+                    .get(0).isSuccess());
+
+            List<TargetResult> results = uploader.upload(unreadable, "fan_out_intact.json.gz",
+                    Collections.singletonList(target));
+            Assert.assertFalse(results.get(0).isSuccess(), "Выгрузка должна завершиться ошибкой");
+
+            try (SftpSessionPool.PooledChannel pooled = pool.borrow(target)) {
+                byte[] raw = read(pooled.getChannel().get("fan_out_intact.json.gz"));
+                byte[] unpacked = read(new GZIPInputStream(new ByteArrayInputStream(raw)));
+                Assert.assertEquals(new String(unpacked, StandardCharsets.UTF_8), json,
+                        "Неудачная выгрузка не должна портить файл на сервере");
+                boolean partLeft = false;
+                for (Object entry : pooled.getChannel().ls(".")) {
+                    partLeft |= entry.toString().contains("fan_out_intact.json.gz.part");
+                }
+                Assert.assertFalse(partLeft, "Временный файл должен удаляться после ошибки");
+                pooled.getChannel().rm("fan_out_intact.json.gz");
+            }
+        } finally {
+            Files.deleteIfExists(unreadable);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static byte[] read(InputStream in) throws Exception {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
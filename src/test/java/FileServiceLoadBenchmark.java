@@ -0,0 +1,109 @@
+import json.FileService;
+
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Замер времени загрузки и пикового потребления кучи FileService в зависимости от размера файла.
+ * Запуск: java -cp target/classes:target/test-classes:<jsch.jar> FileServiceLoadBenchmark [размеры...]
+ */
+public class FileServiceLoadBenchmark {
+    private static final int[] DEFAULT_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int ITERATIONS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%10s %12s %12s %14s %16s%n", "записей", "файл, МБ", "время, мс", "пик кучи, МБ", "занято после, МБ");
+        for (int size : sizes) {
+            Path file = generateFile(size);
+            try {
+                new FileService(file); // прогрев
+                long bestTime = Long.MAX_VALUE;
+                long bestPeak = Long.MAX_VALUE;
+                long retained = 0;
+                FileService service = null;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    service = null;
+                    System.gc();
+                    long baseline = resetPeakHeap();
+                    long start = System.nanoTime();
+                    service = new FileService(file);
+                    long elapsed = System.nanoTime() - start;
+                    long peak = peakHeap() - baseline;
+                    if (service.getIpByDomain("host0.example.com") == null) {
+                        throw new IllegalStateException("Файл загружен неверно");
+                    }
+                    bestTime = Math.min(bestTime, elapsed);
+                    bestPeak = Math.min(bestPeak, peak);
+                    // Память, которую удерживают загруженные данные после сборки мусора
+                    System.gc();
+                    retained = usedHeap() - baseline;
+                    if (service.getDomainIpPairs().isEmpty()) {
+                        throw new IllegalStateException("Файл загружен неверно");
+                    }
+                }
+                System.out.printf("%10d %12.1f %12d %14.1f %16.1f%n", size, Files.size(file) / 1048576.0,
+                        bestTime / 1_000_000, bestPeak / 1048576.0, retained / 1048576.0);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    static Path generateFile(int size) throws Exception {
+        Path file = Files.createTempFile("bench_domains", ".json");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"addresses\": [\n");
+            for (int i = 0; i < size; i++) {
+                writer.write("    {\"domain\": \"host" + i + ".example.com\", \"ip\": \""
+                        + ((i >>> 24) & 0xFF) + "." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF) + "\"}");
+                if (i < size - 1) writer.write(",\n");
+            }
+            writer.write("\n  ]\n}");
+        }
+        return file;
+    }
+
+    private static long resetPeakHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long usedHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
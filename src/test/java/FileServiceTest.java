@@ -1,4 +1,6 @@
 import json.FileService;
+import json.Mutation;
+import json.Resolution;
 import model.DomainIpPair;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -6,7 +8,14 @@ import org.testng.annotations.Test;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class FileServiceTest {
     private FileService fileService;
@@ -78,6 +87,214 @@ public class FileServiceTest {
         Assert.assertFalse(added, "Добавление дубликата IP должно быть отклонено");
     }
 
+    @Test
+    public void testAddDuplicateDomainIgnoreCase() {
+        boolean added = fileService.addDomainIpPair("EXAMPLE.com", "172.16.0.1");
+        Assert.assertFalse(added, "Домен должен проверяться на дубликат без учета регистра");
+    }
+
+    @Test
+    public void testReAddAfterRemove() {
+        Assert.assertTrue(fileService.removeDomainIpPair("example.com"));
+        Assert.assertNull(fileService.getDomainById("192.168.1.1"), "После удаления IP не должен находиться");
+
+        boolean added = fileService.addDomainIpPair("example.com", "192.168.1.1");
+        Assert.assertTrue(added, "После удаления пару можно добавить снова");
+        Assert.assertEquals(fileService.getDomainById("192.168.1.1"), "example.com");
+    }
+
+    @Test
+    public void testManyAddsAndRemoves() {
+        for (int i = 0; i < 500; i++) {
+            Assert.assertTrue(fileService.addDomainIpPair("host" + i + ".com", "172.16." + (i / 256) + "." + (i % 256)));
+        }
+        for (int i = 0; i < 500; i += 2) {
+            Assert.assertTrue(fileService.removeDomainIpPair("172.16." + (i / 256) + "." + (i % 256)));
+        }
+        for (int i = 0; i < 500; i++) {
+            String domain = fileService.getDomainById("172.16." + (i / 256) + "." + (i % 256));
+            Assert.assertEquals(domain, i % 2 == 0 ? null : "host" + i + ".com", "Индекс IP должен оставаться согласованным после удалений");
+        }
+
+        List<DomainIpPair> sorted = fileService.getDomainIpPairs();
+        Assert.assertEquals(sorted.size(), 2 + 250);
+        for (int i = 1; i < sorted.size(); i++) {
+            Assert.assertTrue(sorted.get(i - 1).getDomain().compareTo(sorted.get(i).getDomain()) <= 0,
+                    "Список должен оставаться отсортированным");
+        }
+        Assert.assertEquals(fileService.getDomainIpPairsByPrefix("host49").size(), 6, "host49 и host491..host499 нечетные");
+        Assert.assertEquals(new FileService(tempFile).getDomainIpPairs().size(), 2 + 250,
+                "Файл должен содержать все изменения");
+    }
+
+    @Test
+    public void testApplyBatch() throws Exception {
+        int applied = fileService.applyBatch(Arrays.asList(
+                Mutation.add("new.com", "172.16.0.1"),
+                Mutation.remove("test.com"),
+                Mutation.add("other.com", "10.0.0.1")));
+        Assert.assertEquals(applied, 3, "Все изменения пакета должны быть применены");
+
+        FileService reloaded = new FileService(tempFile);
+        Assert.assertEquals(reloaded.getIpByDomain("new.com"), "172.16.0.1");
+        Assert.assertEquals(reloaded.getDomainById("10.0.0.1"), "other.com", "IP удаленной пары можно занять в том же пакете");
+        Assert.assertNull(reloaded.getIpByDomain("test.com"));
+    }
+
+    @Test
+    public void testApplyBatchIsAllOrNothing() throws Exception {
+        String before = new String(Files.readAllBytes(tempFile));
+        try {
+            fileService.applyBatch(Arrays.asList(
+                    Mutation.add("new.com", "172.16.0.1"),
+                    Mutation.remove("example.com"),
+                    Mutation.add("test.com", "172.16.0.2")));
+            Assert.fail("Пакет с дубликатом домена должен быть отклонен");
+        } catch (IllegalArgumentException expected) {
+            // ожидаемое исключение
+        }
+
+        Assert.assertNull(fileService.getIpByDomain("new.com"), "Изменения отклоненного пакета должны быть отменены");
+        Assert.assertEquals(fileService.getIpByDomain("example.com"), "192.168.1.1", "Удаленная пара должна быть восстановлена");
+        Assert.assertEquals(fileService.getDomainIpPairs().size(), 2);
+        Assert.assertEquals(new String(Files.readAllBytes(tempFile)), before, "Файл не должен меняться при отклонении пакета");
+    }
+
+    @Test
+    public void testSortedViewFollowsChanges() {
+        fileService.addDomainIpPair("b.org", "172.16.0.1");
+        fileService.applyBatch(Arrays.asList(
+                Mutation.add("zeta.com", "172.16.0.2"),
+                Mutation.add("alpha.com", "172.16.0.3"),
+                Mutation.remove("test.com"),
+                Mutation.add("tmp.com", "172.16.0.4"),
+                Mutation.remove("tmp.com")));
+        fileService.removeDomainIpPair("b.org");
+
+        List<DomainIpPair> pairs = fileService.getDomainIpPairs();
+        Assert.assertEquals(pairs.size(), 3);
+        Assert.assertEquals(pairs.get(0).getDomain(), "alpha.com");
+        Assert.assertEquals(pairs.get(1).getDomain(), "example.com");
+        Assert.assertEquals(pairs.get(2).getDomain(), "zeta.com");
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testSortedViewIsUnmodifiable() {
+        fileService.getDomainIpPairs().clear();
+    }
+
+    @Test
+    public void testPagingAndPrefix() {
+        fileService.applyBatch(Arrays.asList(
+                Mutation.add("test.org", "172.16.0.1"),
+                Mutation.add("tester.com", "172.16.0.2"),
+                Mutation.add("tes.com", "172.16.0.3")));
+
+        List<DomainIpPair> page = fileService.getDomainIpPairs(1, 2);
+        Assert.assertEquals(page.size(), 2);
+        Assert.assertEquals(page.get(0).getDomain(), "tes.com");
+        Assert.assertEquals(page.get(1).getDomain(), "test.com");
+        Assert.assertEquals(fileService.getDomainIpPairs(4, 10).size(), 1, "Последняя страница может быть неполной");
+        Assert.assertTrue(fileService.getDomainIpPairs(10, 10).isEmpty());
+
+        List<DomainIpPair> byPrefix = fileService.getDomainIpPairsByPrefix("test");
+        Assert.assertEquals(byPrefix.size(), 3);
+        Assert.assertEquals(byPrefix.get(0).getDomain(), "test.com");
+        Assert.assertEquals(byPrefix.get(2).getDomain(), "tester.com");
+        Assert.assertTrue(fileService.getDomainIpPairsByPrefix("nothing").isEmpty());
+        Assert.assertEquals(fileService.getDomainIpPairsByPrefix("").size(), 5);
+    }
+
+    @Test
+    public void testConcurrentReadersSeeWholeBatches() throws Exception {
+        int batches = 200;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    // Каждый пакет добавляет две пары, поэтому частично примененный пакет даст нечетное число
+                    int size = fileService.getDomainIpPairs().size();
+                    if (size % 2 != 0) {
+                        failure.set("Читатель увидел половину пакета: " + size);
+                    }
+                    if (!"192.168.1.1".equals(fileService.getIpByDomain("example.com"))) {
+                        failure.set("Читатель не нашел исходную пару");
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            int writer = w;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < batches / 2; i++) {
+                    fileService.applyBatch(Arrays.asList(
+                            Mutation.add("a" + writer + "-" + i + ".com", "10." + (writer + 1) + "." + (i / 256) + "." + (i % 256)),
+                            Mutation.add("b" + writer + "-" + i + ".com", "10." + (writer + 3) + "." + (i / 256) + "." + (i % 256))));
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        done.set(true);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+
+        Assert.assertNull(failure.get(), failure.get());
+        Assert.assertEquals(fileService.getDomainIpPairs().size(), 2 + batches * 2);
+        Assert.assertEquals(new FileService(tempFile).getDomainIpPairs().size(), 2 + batches * 2,
+                "Файл должен содержать изменения всех писателей");
+    }
+
+    @Test
+    public void testDuplicateDomainsDifferingInCase() throws Exception {
+        Files.write(tempFile, ("{\"addresses\": [" +
+                "{\"domain\": \"Example.com\", \"ip\": \"10.0.0.1\"}," +
+                "{\"domain\": \"example.com\", \"ip\": \"10.0.0.2\"}," +
+                "{\"domain\": \"dup.com\", \"ip\": \"10.0.0.3\"}," +
+                "{\"domain\": \"dup.com\", \"ip\": \"10.0.0.4\"}]}").getBytes());
+        FileService service = new FileService(tempFile);
+
+        Assert.assertEquals(service.getIpByDomain("Example.com"), "10.0.0.1");
+        Assert.assertEquals(service.getIpByDomain("example.com"), "10.0.0.2",
+                "Домен, отличающийся регистром от более раннего, должен находиться");
+
+        Assert.assertTrue(service.removeDomainIpPair("dup.com"));
+        Assert.assertEquals(service.getIpByDomain("dup.com"), "10.0.0.4",
+                "После удаления первой пары должен находиться оставшийся дубликат");
+        Assert.assertTrue(service.removeDomainIpPair("dup.com"));
+        Assert.assertNull(service.getIpByDomain("dup.com"));
+    }
+
+    @Test
+    public void testDuplicateIps() throws Exception {
+        Files.write(tempFile, ("{\"addresses\": [" +
+                "{\"domain\": \"a.com\", \"ip\": \"10.0.0.1\"}," +
+                "{\"domain\": \"b.com\", \"ip\": \"10.0.0.1\"}]}").getBytes());
+        FileService service = new FileService(tempFile);
+
+        Assert.assertEquals(service.getDomainById("10.0.0.1"), "a.com");
+        Assert.assertTrue(service.removeDomainIpPair("a.com"));
+        Assert.assertEquals(service.getDomainById("10.0.0.1"), "b.com",
+                "После удаления первой пары должна находиться пара с тем же адресом");
+        Assert.assertTrue(service.removeDomainIpPair("10.0.0.1"));
+        Assert.assertNull(service.getDomainById("10.0.0.1"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseInvalidMutation() {
+        Mutation.parse("add only-domain.com");
+    }
+
     @Test
     public void testRemoveDomainIpPair() {
         boolean removed = fileService.removeDomainIpPair("example.com");
@@ -123,6 +340,8 @@ public class FileServiceTest {
         FileService service = new FileService(invalidFile);
         List<DomainIpPair> pairs = service.getDomainIpPairs();
         Assert.assertTrue(pairs.isEmpty(), "Список пар из некорректного файла должен быть пустым");
+        Assert.assertFalse(service.isLoaded(), "Некорректный файл не должен считаться загруженным");
+        Assert.assertTrue(fileService.isLoaded());
     }
 
     @Test
@@ -136,4 +355,36 @@ public class FileServiceTest {
         List<DomainIpPair> pairs = service.getDomainIpPairs();
         Assert.assertTrue(pairs.isEmpty(), "Список пар из файла без addresses должен быть пустым");
     }
+
+    @Test
+    public void testResolveAll() {
+        List<Resolution> results = fileService.resolveAll(Stream.of("example.com", "10.0.0.1", "missing.com",
+                "1.1.1.1", "999.1.1.1")).collect(Collectors.toList());
+        Assert.assertEquals(results.size(), 5);
+        Assert.assertEquals(results.get(0).getValue(), "192.168.1.1");
+        Assert.assertEquals(results.get(1).getValue(), "test.com");
+        Assert.assertFalse(results.get(2).isFound());
+        Assert.assertFalse(results.get(3).isFound());
+        Assert.assertNull(results.get(4).getValue(), "Некорректный IP ищется как домен и не находится");
+        Assert.assertEquals(results.get(4).getKey(), "999.1.1.1");
+    }
+
+    @Test
+    public void testResolveAllKeepsOrderAcrossChunks() {
+        int count = FileService.RESOLVE_CHUNK_SIZE * 2 + 17;
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<String> keys = IntStream.range(0, count)
+                .mapToObj(i -> i % 3 == 0 ? "example.com" : i % 3 == 1 ? "10.0.0.1" : "k" + i)
+                .onClose(() -> closed.set(true));
+        int[] index = {0};
+        try (Stream<Resolution> results = fileService.resolveAll(keys)) {
+            results.forEach(result -> {
+                int i = index[0]++;
+                String expected = i % 3 == 0 ? "192.168.1.1" : i % 3 == 1 ? "test.com" : null;
+                Assert.assertEquals(result.getValue(), expected, "Ключ " + i + ": " + result.getKey());
+            });
+        }
+        Assert.assertEquals(index[0], count);
+        Assert.assertTrue(closed.get(), "Закрытие результатов должно закрывать поток ключей");
+    }
 }
@@ -0,0 +1,86 @@
+import model.Ipv4;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.regex.Pattern;
+
+public class Ipv4Test {
+    // Регулярное выражение, которым InputHandler проверял адреса раньше
+    private static final Pattern REGEX =
+            Pattern.compile("^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$");
+    private static final String[] OCTETS = {
+            "", "0", "00", "000", "0000", "1", "01", "001", "9", "09", "99", "099", "100", "199",
+            "200", "249", "250", "255", "256", "260", "299", "300", "999", "a", "-1", " 1", "1 ", "\u0661"
+    };
+
+    @Test
+    public void testParseAndFormat() {
+        Assert.assertEquals(Ipv4.parse("0.0.0.0"), 0);
+        Assert.assertEquals(Ipv4.parse("255.255.255.255"), -1, "Все биты адреса должны быть установлены");
+        Assert.assertEquals(Ipv4.parse("10.0.0.1"), 0x0A000001);
+        Assert.assertEquals(Ipv4.format(0xC0A80101), "192.168.1.1", "Текстовая запись должна восстанавливаться из числа");
+        Assert.assertEquals(Ipv4.format(Ipv4.parse("172.16.254.1")), "172.16.254.1");
+    }
+
+    @Test
+    public void testLeadingZeros() {
+        Assert.assertEquals(Ipv4.format(Ipv4.parse("010.001.000.09")), "10.1.0.9", "Ведущие нули допускаются, как и в регулярном выражении");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOctetOutOfRange() {
+        Ipv4.parse("256.1.2.3");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooManyDigits() {
+        Ipv4.parse("0001.1.1.1");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTrailingDot() {
+        Ipv4.parse("1.1.1.1.");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIncomplete() {
+        Ipv4.parse("1.1.1");
+    }
+
+    @Test
+    public void testTryParseMatchesRegex() {
+        // Все сочетания из 3, 4 и 5 чисел, включая граничные значения и посторонние символы
+        for (String a : OCTETS) {
+            for (String b : OCTETS) {
+                for (String c : OCTETS) {
+                    assertSameAsRegex(a + "." + b + "." + c);
+                    for (String d : OCTETS) {
+                        String ip = a + "." + b + "." + c + "." + d;
+                        assertSameAsRegex(ip);
+                        assertSameAsRegex(ip + ".");
+                        assertSameAsRegex(ip + "\n");
+                    }
+                    assertSameAsRegex(a + "." + b + "." + c + ".1.1");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTryParse() {
+        Assert.assertEquals(Ipv4.tryParse("255.255.255.255"), 0xFFFFFFFFL, "Адрес возвращается как беззнаковое число");
+        Assert.assertEquals(Ipv4.tryParse("10.0.0.1"), 0x0A000001L);
+        Assert.assertEquals(Ipv4.tryParse(null), Ipv4.INVALID);
+        Assert.assertEquals(Ipv4.tryParse(""), Ipv4.INVALID);
+        Assert.assertEquals(Ipv4.tryParse("1..1.1"), Ipv4.INVALID);
+    }
+
+    private static void assertSameAsRegex(String ip) {
+        boolean expected = REGEX.matcher(ip).matches();
+        long parsed = Ipv4.tryParse(ip);
+        Assert.assertEquals(parsed != Ipv4.INVALID, expected, "Результат для '" + ip + "' должен совпадать с регулярным выражением");
+        if (expected) {
+            Assert.assertEquals((int) parsed, Ipv4.parse(ip));
+        }
+    }
+}
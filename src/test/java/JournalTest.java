@@ -0,0 +1,85 @@
+import json.FileService;
+import json.Journal;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class JournalTest {
+    private Path dataFile;
+    private Path journalFile;
+    private String initialJson;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        dataFile = Files.createTempFile("journal_domains", ".json");
+        journalFile = Files.createTempFile("domains", ".journal");
+        Files.delete(journalFile);
+        initialJson = "{\n  \"addresses\": [\n    {\"domain\": \"example.com\", \"ip\": \"192.168.1.1\"}\n  ]\n}";
+        Files.write(dataFile, initialJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readData() throws Exception {
+        return new String(Files.readAllBytes(dataFile), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testMutationsGoToJournal() throws Exception {
+        FileService service = new FileService(dataFile, new Journal(journalFile));
+        Assert.assertTrue(service.addDomainIpPair("new.com", "10.0.0.2"));
+        Assert.assertTrue(service.removeDomainIpPair("example.com"));
+
+        Assert.assertEquals(readData(), initialJson, "Основной файл не должен перезаписываться до уплотнения");
+        Assert.assertTrue(Files.size(journalFile) > 0, "Изменения должны быть записаны в журнал");
+        Assert.assertEquals(service.getSaveCount(), 0);
+
+        service.close();
+        Assert.assertFalse(Files.exists(journalFile), "После уплотнения журнал должен быть очищен");
+        Assert.assertEquals(service.getSaveCount(), 1);
+        FileService reloaded = new FileService(dataFile);
+        Assert.assertEquals(reloaded.getIpByDomain("new.com"), "10.0.0.2");
+        Assert.assertNull(reloaded.getIpByDomain("example.com"));
+    }
+
+    @Test
+    public void testCompactionOnThreshold() throws Exception {
+        FileService service = new FileService(dataFile, new Journal(journalFile, 2));
+        service.addDomainIpPair("a.com", "10.0.0.2");
+        Assert.assertEquals(service.getSaveCount(), 0);
+        service.addDomainIpPair("b.com", "10.0.0.3");
+        Assert.assertEquals(service.getSaveCount(), 1, "При достижении порога журнал должен уплотняться");
+        Assert.assertEquals(new FileService(dataFile).getIpByDomain("b.com"), "10.0.0.3");
+    }
+
+    @Test
+    public void testRecoveryAfterCrash() throws Exception {
+        FileService crashed = new FileService(dataFile, new Journal(journalFile));
+        crashed.addDomainIpPair("new.com", "10.0.0.2");
+        crashed.removeDomainIpPair("192.168.1.1");
+        // close() не вызывается - имитация аварийного завершения
+
+        FileService recovered = new FileService(dataFile, new Journal(journalFile));
+        Assert.assertEquals(recovered.getIpByDomain("new.com"), "10.0.0.2", "Добавление должно восстановиться из журнала");
+        Assert.assertNull(recovered.getIpByDomain("example.com"), "Удаление должно восстановиться из журнала");
+        Assert.assertEquals(recovered.getSaveCount(), 1, "Восстановленные изменения должны сразу попасть в основной файл");
+        Assert.assertFalse(Files.exists(journalFile));
+    }
+
+    @Test
+    public void testTruncatedRecordIsIgnored() throws Exception {
+        FileService crashed = new FileService(dataFile, new Journal(journalFile));
+        crashed.addDomainIpPair("new.com", "10.0.0.2");
+        try (OutputStream out = Files.newOutputStream(journalFile, StandardOpenOption.APPEND)) {
+            out.write(new byte[]{'A', 10, 0});
+        }
+
+        FileService recovered = new FileService(dataFile, new Journal(journalFile));
+        Assert.assertEquals(recovered.getIpByDomain("new.com"), "10.0.0.2", "Целые записи должны восстанавливаться");
+        Assert.assertEquals(recovered.getDomainIpPairs().size(), 2, "Оборванная запись должна игнорироваться");
+    }
+}
@@ -0,0 +1,80 @@
+import json.JsonAddressReader;
+import model.DomainIpPair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JsonAddressReaderTest {
+
+    private List<DomainIpPair> parse(String json) throws Exception {
+        List<DomainIpPair> pairs = new ArrayList<>();
+        new JsonAddressReader(new StringReader(json)).readAddresses(pairs::add);
+        return pairs;
+    }
+
+    @Test
+    public void testParseFormattedFile() throws Exception {
+        List<DomainIpPair> pairs = parse("{\n  \"addresses\": [\n" +
+                "    {\"domain\": \"example.com\", \"ip\": \"192.168.1.1\"},\n" +
+                "    {\"domain\": \"test.com\", \"ip\": \"10.0.0.1\"}\n  ]\n}");
+        Assert.assertEquals(pairs.size(), 2, "Должно быть прочитано 2 пары");
+        Assert.assertEquals(pairs.get(0).getDomain(), "example.com");
+        Assert.assertEquals(pairs.get(1).getIp(), "10.0.0.1");
+    }
+
+    @Test
+    public void testSeparatorsInsideStrings() throws Exception {
+        List<DomainIpPair> pairs = parse("{\"addresses\":[{\"ip\":\"10.0.0.1\",\"domain\":\"a:b,c}d]\"}]}");
+        Assert.assertEquals(pairs.size(), 1);
+        Assert.assertEquals(pairs.get(0).getDomain(), "a:b,c}d]", "Символы-разделители внутри строки не должны ломать разбор");
+    }
+
+    @Test
+    public void testEscapeSequences() throws Exception {
+        List<DomainIpPair> pairs = parse("{\"addresses\":[{\"domain\":\"q\\\"t\\u0041\",\"ip\":\"10.0.0.1\"}]}");
+        Assert.assertEquals(pairs.get(0).getDomain(), "q\"tA", "Escape-последовательности должны раскрываться");
+    }
+
+    @Test
+    public void testUnknownFieldsAreSkipped() throws Exception {
+        List<DomainIpPair> pairs = parse("{\"version\": 2, \"meta\": {\"list\": [1, true, null]}, " +
+                "\"addresses\": [{\"domain\": \"example.com\", \"ttl\": 300, \"ip\": \"192.168.1.1\"}]}");
+        Assert.assertEquals(pairs.size(), 1, "Неизвестные поля должны пропускаться");
+        Assert.assertEquals(pairs.get(0).getIp(), "192.168.1.1");
+    }
+
+    @Test
+    public void testEmptyAddresses() throws Exception {
+        Assert.assertTrue(parse("{\"addresses\": []}").isEmpty(), "Пустой массив должен давать пустой список");
+    }
+
+    @Test
+    public void testEntryWithoutIp() throws Exception {
+        Assert.assertTrue(parse("{\"addresses\": [{\"domain\": \"example.com\"}]}").isEmpty(),
+                "Запись без IP должна пропускаться");
+    }
+
+    @Test
+    public void testInvalidIpIsSkipped() throws Exception {
+        List<DomainIpPair> pairs = parse("{\"addresses\": [" +
+                "{\"domain\": \"example.com\", \"ip\": \"192.168.1.1\"}," +
+                "{\"domain\": \"broken.com\", \"ip\": \"256.1.1.1\"}," +
+                "{\"domain\": \"test.com\", \"ip\": \"10.0.0.1\"}]}");
+        Assert.assertEquals(pairs.size(), 2, "Одна некорректная запись не должна отменять остальные");
+        Assert.assertEquals(pairs.get(0).getDomain(), "example.com");
+        Assert.assertEquals(pairs.get(1).getDomain(), "test.com");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMissingAddresses() throws Exception {
+        parse("{\"other\": []}");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTruncatedDocument() throws Exception {
+        parse("{\"addresses\": [{\"domain\": \"example.com\", \"ip\": \"10.0.0.1\"}");
+    }
+}
@@ -0,0 +1,77 @@
+import json.FileService;
+import json.JsonAddressReader;
+import json.JsonAddressWriter;
+import model.DomainIpPair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class JsonAddressWriterTest {
+
+    private String write(List<DomainIpPair> pairs) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonAddressWriter(out).writeAddresses(pairs);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Прежний способ сохранения файла
+    private String legacyFormat(List<DomainIpPair> pairs) {
+        StringBuilder json = new StringBuilder("{\n  \"addresses\": [\n");
+        for (int i = 0; i < pairs.size(); i++) {
+            DomainIpPair pair = pairs.get(i);
+            json.append(String.format("    {\"domain\": \"%s\", \"ip\": \"%s\"}", pair.getDomain(), pair.getIp()));
+            if (i < pairs.size() - 1) json.append(",\n");
+        }
+        json.append("\n  ]\n}");
+        return json.toString();
+    }
+
+    @Test
+    public void testSameLayoutAsBefore() throws Exception {
+        List<DomainIpPair> pairs = Arrays.asList(
+                new DomainIpPair("example.com", "192.168.1.1"),
+                new DomainIpPair("пример.рф", "0.0.0.0"),
+                new DomainIpPair("test.com", "255.255.255.255"),
+                new DomainIpPair("a-b.org", "10.9.99.100"));
+        Assert.assertEquals(write(pairs), legacyFormat(pairs), "Формат файла должен совпадать побайтно");
+        Assert.assertEquals(write(Collections.emptyList()), legacyFormat(Collections.emptyList()));
+    }
+
+    @Test
+    public void testSpecialCharactersRoundTrip() throws Exception {
+        String domain = "q\"uo\\te\ttab\u0001";
+        String json = write(Collections.singletonList(new DomainIpPair(domain, "10.0.0.1")));
+        Assert.assertTrue(json.contains("q\\\"uo\\\\te\\ttab\\u0001"), "Кавычки и управляющие символы должны экранироваться");
+
+        List<DomainIpPair> pairs = new ArrayList<>();
+        new JsonAddressReader(new StringReader(json)).readAddresses(pairs::add);
+        Assert.assertEquals(pairs.get(0).getDomain(), domain);
+    }
+
+    @Test
+    public void testSaveReplacesFileWithoutTempLeftovers() throws Exception {
+        Path dir = Files.createTempDirectory("writer_test");
+        Path file = dir.resolve("domains.json");
+        Files.write(file, "{\"addresses\": []}".getBytes(StandardCharsets.UTF_8));
+
+        FileService service = new FileService(file);
+        Assert.assertTrue(service.addDomainIpPair("new.com", "172.16.0.1"));
+        Assert.assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                "{\n  \"addresses\": [\n    {\"domain\": \"new.com\", \"ip\": \"172.16.0.1\"}\n  ]\n}");
+        try (Stream<Path> files = Files.list(dir)) {
+            Assert.assertEquals(files.count(), 1, "Временный файл должен быть удален после замены");
+        }
+        Files.delete(file);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,127 @@
+import log.Appender;
+import log.AsyncAppender;
+import log.ConsoleAppender;
+import log.Level;
+import log.Log;
+import log.LogEvent;
+import log.Logger;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LogTest {
+    private final List<LogEvent> events = Collections.synchronizedList(new ArrayList<>());
+    private final Logger log = Log.get(LogTest.class);
+
+    @BeforeMethod
+    public void setup() {
+        events.clear();
+        Log.setAppender(events::add);
+        Log.setLevel(Level.INFO);
+    }
+
+    @AfterMethod
+    public void restore() {
+        Log.setAppender(new AsyncAppender(new ConsoleAppender(System.err), AsyncAppender.DEFAULT_CAPACITY));
+        Log.setLevel(Level.INFO);
+    }
+
+    @Test
+    public void testLevelFilter() {
+        log.debug("не выводится");
+        log.info("сообщение");
+        log.error("ошибка");
+        Log.setLevel(Level.ERROR);
+        log.warn("не выводится");
+
+        Assert.assertEquals(events.size(), 2);
+        Assert.assertEquals(events.get(0).getLevel(), Level.INFO);
+        Assert.assertEquals(events.get(0).getMessage(), "сообщение");
+        Assert.assertEquals(events.get(0).getLogger(), "LogTest");
+        Assert.assertEquals(events.get(1).getLevel(), Level.ERROR);
+
+        Log.setLevel(Level.OFF);
+        log.error("не выводится");
+        Assert.assertEquals(events.size(), 2);
+    }
+
+    @Test
+    public void testLazyMessage() {
+        AtomicInteger built = new AtomicInteger();
+        log.debug(() -> "отладка " + built.incrementAndGet());
+        Assert.assertEquals(built.get(), 0, "Отключенное сообщение не должно собираться");
+        Assert.assertTrue(events.isEmpty());
+
+        Log.setLevel(Level.DEBUG);
+        Assert.assertTrue(log.isDebugEnabled());
+        log.debug(() -> "отладка " + built.incrementAndGet());
+        Assert.assertEquals(built.get(), 1);
+        Assert.assertEquals(events.get(0).getMessage(), "отладка 1");
+    }
+
+    @Test
+    public void testParseLevel() {
+        Assert.assertEquals(Level.parse(" debug "), Level.DEBUG);
+        Assert.assertThrows(IllegalArgumentException.class, () -> Level.parse("verbose"));
+    }
+
+    @Test
+    public void testAsyncAppenderKeepsOrder() {
+        AsyncAppender async = new AsyncAppender(events::add, 1024);
+        Log.setAppender(async);
+        for (int i = 0; i < 500; i++) {
+            log.info("сообщение " + i);
+        }
+        Log.flush();
+        Assert.assertEquals(events.size(), 500, "flush должен дождаться вывода всех сообщений");
+        for (int i = 0; i < 500; i++) {
+            Assert.assertEquals(events.get(i).getMessage(), "сообщение " + i);
+        }
+    }
+
+    @Test
+    public void testAsyncAppenderDropsWhenFull() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Appender slow = event -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        };
+        AsyncAppender async = new AsyncAppender(slow, 4);
+        Log.setAppender(async);
+
+        log.info("первое");
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        long started = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            log.info("сообщение " + i);
+        }
+        Assert.assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1),
+                "Запись в полный буфер не должна ждать вывода");
+
+        release.countDown();
+        Log.flush();
+        log.info("после переполнения");
+        Log.flush();
+        Assert.assertEquals(events.get(0).getMessage(), "первое");
+        boolean reported = false;
+        for (LogEvent event : events) {
+            reported |= event.getMessage().startsWith("Буфер журнала переполнен, пропущено сообщений: 96");
+        }
+        Assert.assertTrue(reported, "Количество пропущенных сообщений должно попасть в журнал");
+        Assert.assertEquals(events.size(), 1 + 4 + 1 + 1);
+    }
+}
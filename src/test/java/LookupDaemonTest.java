@@ -0,0 +1,68 @@
+import daemon.LookupDaemon;
+import json.FileService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class LookupDaemonTest {
+    private LookupDaemon daemon;
+
+    private static FileService load(String json) throws Exception {
+        Path file = Files.createTempFile("daemon_domains", ".json");
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        return new FileService(file);
+    }
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        daemon = new LookupDaemon(load("{\"addresses\": [{\"domain\": \"example.com\", \"ip\": \"192.168.1.1\"}]}"), 0, 4);
+        daemon.start();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        daemon.close();
+    }
+
+    @Test
+    public void testPipelinedQueries() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            writer.write("IP example.com\nDOMAIN 192.168.1.1\nIP missing.com\nPING\n");
+            writer.flush();
+
+            Assert.assertEquals(reader.readLine(), "192.168.1.1");
+            Assert.assertEquals(reader.readLine(), "example.com");
+            Assert.assertEquals(reader.readLine(), "NOT_FOUND", "Для неизвестного домена должен возвращаться NOT_FOUND");
+            Assert.assertEquals(reader.readLine(), "PONG");
+
+            writer.write("QUIT\n");
+            writer.flush();
+            Assert.assertNull(reader.readLine(), "После QUIT соединение должно закрываться");
+        }
+    }
+
+    @Test
+    public void testDataReplacement() throws Exception {
+        daemon.setFileService(load("{\"addresses\": [{\"domain\": \"example.com\", \"ip\": \"10.0.0.1\"}]}"));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            writer.write("IP example.com\n");
+            writer.flush();
+            Assert.assertEquals(reader.readLine(), "10.0.0.1", "После обновления должны использоваться новые данные");
+        }
+    }
+}
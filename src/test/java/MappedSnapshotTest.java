@@ -0,0 +1,99 @@
+import json.FileService;
+import model.DomainIpPair;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MappedSnapshotTest {
+    private Path dataFile;
+    private Path snapshotFile;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        dataFile = Files.createTempFile("snapshot_domains", ".json");
+        snapshotFile = Files.createTempFile("domains", ".snapshot");
+        Files.delete(snapshotFile);
+        writeJson("{\"addresses\": [\n" +
+                "  {\"domain\": \"example.com\", \"ip\": \"192.168.1.1\"},\n" +
+                "  {\"domain\": \"Example.com\", \"ip\": \"192.168.1.2\"},\n" +
+                "  {\"domain\": \"test.com\", \"ip\": \"10.0.0.1\"},\n" +
+                "  {\"domain\": \"пример.рф\", \"ip\": \"255.255.255.255\"}\n" +
+                "]}");
+    }
+
+    @AfterMethod
+    public void cleanup() throws Exception {
+        Files.deleteIfExists(dataFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    private void writeJson(String json) throws Exception {
+        Files.write(dataFile, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSnapshotGivesSameResults() {
+        FileService parsed = new FileService(dataFile, null, snapshotFile);
+        Assert.assertTrue(Files.exists(snapshotFile), "Снимок должен быть создан после разбора JSON");
+        FileService mapped = new FileService(dataFile, null, snapshotFile);
+
+        for (String domain : new String[]{"example.com", "Example.com", "test.com", "пример.рф", "EXAMPLE.COM", "none.com"}) {
+            Assert.assertEquals(mapped.getIpByDomain(domain), parsed.getIpByDomain(domain), "Поиск по домену " + domain);
+        }
+        for (String ip : new String[]{"192.168.1.1", "192.168.1.2", "10.0.0.1", "255.255.255.255", "1.1.1.1", "bad"}) {
+            Assert.assertEquals(mapped.getDomainById(ip), parsed.getDomainById(ip), "Поиск по IP " + ip);
+        }
+        Assert.assertEquals(mapped.getIpByDomain("пример.рф"), "255.255.255.255");
+
+        List<DomainIpPair> expected = parsed.getDomainIpPairs();
+        List<DomainIpPair> actual = mapped.getDomainIpPairs();
+        Assert.assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(actual.get(i).toString(), expected.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testSnapshotInvalidatedWhenJsonChanges() throws Exception {
+        new FileService(dataFile, null, snapshotFile);
+        writeJson("{\"addresses\": [{\"domain\": \"other.com\", \"ip\": \"10.0.0.9\"}]}");
+
+        FileService reloaded = new FileService(dataFile, null, snapshotFile);
+        Assert.assertEquals(reloaded.getIpByDomain("other.com"), "10.0.0.9", "Устаревший снимок не должен использоваться");
+        Assert.assertNull(reloaded.getIpByDomain("test.com"));
+    }
+
+    @Test
+    public void testMutationOnMappedData() throws Exception {
+        new FileService(dataFile, null, snapshotFile);
+        FileService mapped = new FileService(dataFile, null, snapshotFile);
+
+        Assert.assertTrue(mapped.addDomainIpPair("new.com", "172.16.0.1"));
+        Assert.assertFalse(mapped.addDomainIpPair("TEST.com", "172.16.0.2"), "Дубликаты проверяются и после переноса в память");
+        Assert.assertTrue(mapped.removeDomainIpPair("10.0.0.1"));
+        Assert.assertEquals(mapped.getIpByDomain("new.com"), "172.16.0.1");
+        Assert.assertNull(mapped.getIpByDomain("test.com"));
+        mapped.close();
+
+        FileService reopened = new FileService(dataFile, null, snapshotFile);
+        Assert.assertEquals(reopened.getIpByDomain("new.com"), "172.16.0.1", "Снимок должен обновиться при закрытии");
+        Assert.assertEquals(reopened.getDomainById("192.168.1.2"), "Example.com", "Порядок записей в файле сохраняется");
+        Assert.assertEquals(new FileService(dataFile).getDomainIpPairs().size(), 4);
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        Files.write(snapshotFile, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        FileService service = new FileService(dataFile, null, snapshotFile);
+        Assert.assertEquals(service.getIpByDomain("test.com"), "10.0.0.1");
+
+        FileService mapped = new FileService(dataFile, null, snapshotFile);
+        Assert.assertEquals(mapped.getIpByDomain("test.com"), "10.0.0.1", "Поврежденный снимок должен быть пересоздан");
+    }
+}
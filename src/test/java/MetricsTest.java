@@ -0,0 +1,136 @@
+import json.FileService;
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.PrometheusDump;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(700));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+        histogram.record(TimeUnit.SECONDS.toNanos(120));
+
+        Assert.assertEquals(histogram.getCount(), 100);
+        Assert.assertEquals(histogram.getMedianMillis(), 1.0, "Медиана оценивается границей корзины 1 мс");
+        Assert.assertEquals(histogram.getP99Millis(), 50.0, "99-й перцентиль попадает в корзину до 50 мс");
+        Assert.assertEquals(histogram.getMaxMillis(), 120_000.0);
+        Assert.assertEquals(histogram.getTotalMillis(), 98 * 0.7 + 40 + 120_000, 1e-6);
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getMeanMillis(), 0.0);
+        Assert.assertEquals(histogram.getP99Millis(), 0.0);
+    }
+
+    @Test
+    public void testLookupCounters() throws Exception {
+        String json = "{\"addresses\": [{\"domain\": \"example.com\", \"ip\": \"192.168.1.1\"}]}";
+        long parsed = Metrics.PARSE.getCount();
+        FileService service = FileService.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(Metrics.PARSE.getCount(), parsed + 1);
+
+        long hits = Metrics.LOOKUP_HITS.getValue();
+        long misses = Metrics.LOOKUP_MISSES.getValue();
+        service.getIpByDomain("example.com");
+        service.getDomainById("192.168.1.1");
+        service.getIpByDomain("missing.com");
+        service.getDomainById("not an ip");
+        service.getDomainById("10.0.0.1");
+        Assert.assertEquals(Metrics.LOOKUP_HITS.getValue(), hits + 2);
+        Assert.assertEquals(Metrics.LOOKUP_MISSES.getValue(), misses + 3);
+    }
+
+    @Test
+    public void testSaveDuration() throws Exception {
+        Path file = Files.createTempFile("metrics_domains", ".json");
+        try {
+            Files.write(file, "{\"addresses\": []}".getBytes(StandardCharsets.UTF_8));
+            FileService service = new FileService(file);
+            long saves = Metrics.SAVE.getCount();
+            service.addDomainIpPair("example.com", "192.168.1.1");
+            Assert.assertEquals(Metrics.SAVE.getCount(), saves + 1);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testPrometheusFormat() throws Exception {
+        StringBuilder out = new StringBuilder();
+        Metrics.writePrometheus(out);
+        String text = out.toString();
+
+        for (String name : Metrics.names()) {
+            Assert.assertTrue(text.contains("# TYPE " + name + " "), "Нет метрики " + name);
+        }
+        Assert.assertTrue(text.contains("# TYPE sftp_download_seconds histogram\n"));
+        Assert.assertTrue(text.contains("# TYPE sftp_download_bytes_total counter\n"));
+        Assert.assertTrue(text.contains("sftp_connect_seconds_bucket{le=\"0.0001\"} "));
+        Assert.assertTrue(text.contains("sftp_connect_seconds_bucket{le=\"2.5\"} "));
+
+        // Корзины накопительные, последняя (+Inf) совпадает с количеством
+        List<Long> buckets = new ArrayList<>();
+        long count = -1;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("domains_parse_seconds_bucket")) {
+                buckets.add(Long.parseLong(line.substring(line.lastIndexOf(' ') + 1)));
+            } else if (line.startsWith("domains_parse_seconds_count ")) {
+                count = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        for (int i = 1; i < buckets.size(); i++) {
+            Assert.assertTrue(buckets.get(i) >= buckets.get(i - 1), "Корзины должны быть накопительными");
+        }
+        Assert.assertEquals((long) buckets.get(buckets.size() - 1), count);
+        Assert.assertTrue(text.contains("domains_parse_seconds_bucket{le=\"+Inf\"} " + count + "\n"));
+    }
+
+    @Test
+    public void testDumpToFile() throws Exception {
+        Path file = Files.createTempFile("metrics", ".prom");
+        try {
+            PrometheusDump dump = PrometheusDump.start(file.toString(), "60");
+            Assert.assertNotNull(dump);
+            dump.close();
+            String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            Assert.assertTrue(text.contains("# TYPE domains_lookup_hits_total counter"),
+                    "При остановке метрики должны быть записаны в файл");
+            Assert.assertNull(PrometheusDump.start("", null), "Без файла метрики не записываются");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMBeans() throws Exception {
+        Metrics.registerMBeans();
+        Metrics.registerMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long hits = Metrics.LOOKUP_HITS.getValue();
+        Assert.assertEquals(server.getAttribute(
+                new ObjectName("sftp.client:type=Counter,name=domains_lookup_hits_total"), "Value"), hits);
+        Assert.assertEquals(server.getAttribute(
+                new ObjectName("sftp.client:type=Histogram,name=sftp_download_seconds"), "Count"),
+                Metrics.DOWNLOAD.getCount());
+    }
+}
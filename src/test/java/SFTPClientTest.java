@@ -1,10 +1,17 @@
 import cli.InputHandler;
+import json.FileService;
+import metrics.Metrics;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import sftp.ConnectionSettings;
 import sftp.SftpClient;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 public class SFTPClientTest {
     private SftpClient sftpClient;
@@ -86,6 +93,16 @@ public class SFTPClientTest {
         Assert.assertTrue(downloadedPath.endsWith(".json"), "Скачанный файл должен иметь расширение .json");
     }
 
+    @Test
+    public void testRepeatedDownloadReusesLocalCopy() {
+        sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD);
+        String firstPath = sftpClient.downloadDomainsFile();
+        Assert.assertNotNull(firstPath, "Ошибка при скачивании файла");
+        String secondPath = sftpClient.downloadDomainsFile();
+        Assert.assertEquals(secondPath, firstPath, "Неизмененный файл не должен скачиваться повторно");
+        Assert.assertTrue(sftpClient.uploadFileToServer(), "Выгрузка неизмененного файла должна считаться успешной");
+    }
+
     @Test
     public void testIsConnected() {
         sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD);
@@ -105,4 +122,122 @@ public class SFTPClientTest {
         boolean uploaded = sftpClient.uploadFileToServer();
         Assert.assertFalse(uploaded, "Загрузка без предварительного скачивания должна вернуть false");
     }
+
+    @Test
+    public void testStreamingLoadAndUpload() {
+        sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD);
+        FileService fileService = sftpClient.loadDomains();
+        Assert.assertNotNull(fileService, "Ошибка при чтении файла из канала");
+        Assert.assertFalse(sftpClient.hasRemoteChanged(), "Сразу после чтения файл на сервере не должен считаться измененным");
+        Assert.assertTrue(sftpClient.uploadDomains(fileService), "Выгрузка неизмененных данных должна считаться успешной");
+
+        Assert.assertTrue(fileService.addDomainIpPair("stream-test.com", "10.201.0.1"));
+        Assert.assertTrue(sftpClient.uploadDomains(fileService), "Ошибка при выгрузке из памяти");
+        Assert.assertEquals(sftpClient.loadDomains().getIpByDomain("stream-test.com"), "10.201.0.1",
+                "Выгруженные данные должны читаться с сервера");
+
+        Assert.assertTrue(fileService.removeDomainIpPair("stream-test.com"));
+        Assert.assertTrue(sftpClient.uploadDomains(fileService));
+    }
+
+    @Test
+    public void testConfiguredRemotePath() {
+        sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD);
+        sftpClient.setRemotePath("missing-domains.json");
+        Assert.assertNull(sftpClient.downloadDomainsFile(),
+                "С заданным путем файл не должен искаться в каталоге");
+
+        sftpClient.setRemotePath("domains.json");
+        Assert.assertNotNull(sftpClient.downloadDomainsFile(), "Ошибка при скачивании файла по заданному пути");
+        Assert.assertEquals(sftpClient.getRemoteFileName(), "domains.json");
+    }
+
+    @Test
+    public void testRemotePathCacheWithoutTtl() {
+        sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD);
+        sftpClient.setRemotePathTtlMillis(0);
+        String firstPath = sftpClient.downloadDomainsFile();
+        Assert.assertNotNull(firstPath, "Ошибка при скачивании файла");
+        Assert.assertEquals(sftpClient.downloadDomainsFile(), firstPath,
+                "Без кеша путь ищется заново и приводит к тому же файлу");
+        Assert.assertTrue(sftpClient.uploadFileToServer());
+    }
+
+    @Test
+    public void testReconnectKeepsSyncState() {
+        Assert.assertFalse(sftpClient.reconnect(), "Без предыдущего подключения переподключаться не к чему");
+
+        ConnectionSettings settings = new ConnectionSettings(HOST, 22, USERNAME, PASSWORD)
+                .setStrictHostKeyChecking(false)
+                .setServerAliveIntervalSeconds(5);
+        Assert.assertTrue(sftpClient.connect(settings));
+        String firstPath = sftpClient.downloadDomainsFile();
+        Assert.assertNotNull(firstPath, "Ошибка при скачивании файла");
+
+        Assert.assertTrue(sftpClient.reconnect(), "Ошибка при переподключении");
+        Assert.assertTrue(sftpClient.isConnected());
+        Assert.assertEquals(sftpClient.downloadDomainsFile(), firstPath,
+                "После переподключения неизмененный файл не должен скачиваться повторно");
+
+        sftpClient.disconnect();
+        Assert.assertFalse(sftpClient.reconnect(), "После явного отключения соединение не восстанавливается");
+    }
+
+    @Test
+    public void testParallelTransfer() throws Exception {
+        String sequentialPath = sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD)
+                ? sftpClient.downloadDomainsFile() : null;
+        Assert.assertNotNull(sequentialPath, "Ошибка при скачивании файла");
+        byte[] expected = Files.readAllBytes(Paths.get(sequentialPath));
+        sftpClient.disconnect();
+
+        SftpClient parallelClient = new SftpClient();
+        ConnectionSettings settings = new ConnectionSettings(HOST, 22, USERNAME, PASSWORD)
+                .setStrictHostKeyChecking(false)
+                .setTransferChannels(3)
+                .setParallelTransferThreshold(0);
+        Assert.assertTrue(parallelClient.connect(settings));
+        try {
+            String parallelPath = parallelClient.downloadDomainsFile();
+            Assert.assertNotNull(parallelPath, "Ошибка при параллельном скачивании файла");
+            Assert.assertEquals(Files.readAllBytes(Paths.get(parallelPath)), expected,
+                    "Параллельное скачивание должно давать тот же файл");
+
+            Files.write(Paths.get(parallelPath), expected);
+            Files.write(Paths.get(parallelPath), new byte[]{'\n'}, StandardOpenOption.APPEND);
+            Assert.assertTrue(parallelClient.uploadFileToServer(), "Ошибка при параллельной выгрузке файла");
+            Files.write(Paths.get(parallelPath), expected);
+            Assert.assertTrue(parallelClient.uploadFileToServer(), "Ошибка при восстановлении файла");
+        } finally {
+            parallelClient.disconnect();
+        }
+    }
+
+    @Test
+    public void testTransferMetrics() throws Exception {
+        long connects = Metrics.CONNECT.getCount();
+        long downloads = Metrics.DOWNLOAD.getCount();
+        long downloaded = Metrics.DOWNLOAD_BYTES.getValue();
+        long uploads = Metrics.UPLOAD.getCount();
+        long uploaded = Metrics.UPLOAD_BYTES.getValue();
+
+        Assert.assertTrue(sftpClient.connectToSftpServer(HOST, PORT, USERNAME, PASSWORD));
+        String localPath = sftpClient.downloadDomainsFile();
+        Assert.assertNotNull(localPath, "Ошибка при скачивании файла");
+        long size = Files.size(Paths.get(localPath));
+        Assert.assertEquals(Metrics.CONNECT.getCount(), connects + 1);
+        Assert.assertEquals(Metrics.DOWNLOAD.getCount(), downloads + 1);
+        Assert.assertEquals(Metrics.DOWNLOAD_BYTES.getValue(), downloaded + size);
+
+        sftpClient.downloadDomainsFile();
+        Assert.assertEquals(Metrics.DOWNLOAD.getCount(), downloads + 1, "Пропущенное скачивание не учитывается");
+
+        Files.write(Paths.get(localPath), new byte[]{'\n'}, StandardOpenOption.APPEND);
+        Assert.assertTrue(sftpClient.uploadFileToServer(), "Ошибка при загрузке файла на сервер");
+        Assert.assertEquals(Metrics.UPLOAD.getCount(), uploads + 1);
+        Assert.assertEquals(Metrics.UPLOAD_BYTES.getValue(), uploaded + size + 1);
+
+        Files.write(Paths.get(localPath), Arrays.copyOf(Files.readAllBytes(Paths.get(localPath)), (int) size));
+        Assert.assertTrue(sftpClient.uploadFileToServer(), "Ошибка при восстановлении файла");
+    }
 }
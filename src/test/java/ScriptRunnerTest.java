@@ -0,0 +1,118 @@
+import cli.InputHandler;
+import cli.ScriptRunner;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import sftp.ConnectionSettings;
+import sftp.SftpClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class ScriptRunnerTest {
+    private final ConnectionSettings settings =
+            new ConnectionSettings("localhost", 22, "name", "pass").setStrictHostKeyChecking(false);
+    private SftpClient sftpClient;
+    private ByteArrayOutputStream output;
+    private ScriptRunner runner;
+
+    @BeforeMethod
+    public void setup() {
+        sftpClient = new SftpClient(new InputHandler(new ByteArrayInputStream(new byte[0])));
+        Assert.assertTrue(sftpClient.connect(settings), "Подключение без вопросов пользователю должно быть успешным");
+        output = new ByteArrayOutputStream();
+        runner = new ScriptRunner(sftpClient, new PrintStream(output, true), System.err);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        sftpClient.disconnect();
+    }
+
+    private String output() {
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testMutationsAndLookups() {
+        int code = runner.execute(Arrays.asList(
+                "add script-test.com 10.200.0.1",
+                "get-ip script-test.com",
+                "get-domain 10.200.0.1",
+                "remove script-test.com",
+                "get-ip script-test.com"));
+        Assert.assertEquals(code, ScriptRunner.EXIT_OK);
+        Assert.assertEquals(output(), "applied\t1\nscript-test.com\t10.200.0.1\n10.200.0.1\tscript-test.com\n"
+                + "applied\t1\nscript-test.com\t-\n");
+    }
+
+    @Test
+    public void testStreamingMode() {
+        runner.setStreaming(true);
+        int code = runner.execute(Arrays.asList("add stream-script.com 10.202.0.1", "get-ip stream-script.com"));
+        Assert.assertEquals(code, ScriptRunner.EXIT_OK);
+        Assert.assertEquals(output(), "applied\t1\nstream-script.com\t10.202.0.1\n");
+
+        output.reset();
+        Assert.assertEquals(runner.execute(Arrays.asList("remove stream-script.com")), ScriptRunner.EXIT_OK,
+                "Изменение из потокового режима должно быть выгружено на сервер");
+        Assert.assertEquals(output(), "applied\t1\n");
+    }
+
+    @Test
+    public void testUnknownCommandFails() {
+        int code = runner.execute(Arrays.asList("frobnicate"));
+        Assert.assertEquals(code, ScriptRunner.EXIT_COMMAND_FAILED, "Неизвестная команда должна давать ненулевой код");
+    }
+
+    @Test
+    public void testUploadFailureHasOwnCode() {
+        SftpClient failingUpload = new SftpClient(new InputHandler(new ByteArrayInputStream(new byte[0]))) {
+            @Override
+            public boolean uploadFileToServer() {
+                return false;
+            }
+        };
+        try {
+            Assert.assertTrue(failingUpload.connect(settings));
+            ScriptRunner failing = new ScriptRunner(failingUpload, new PrintStream(output, true), System.err);
+            int code = failing.execute(Arrays.asList("add upload-failure.com 10.204.0.1"));
+            Assert.assertEquals(code, ScriptRunner.EXIT_UPLOAD_FAILED,
+                    "Невыгруженные изменения не должны выглядеть как ошибка подключения");
+        } finally {
+            failingUpload.disconnect();
+        }
+    }
+
+    @Test
+    public void testMissingConfig() {
+        Assert.assertEquals(ScriptRunner.run(new String[]{"list"}), ScriptRunner.EXIT_SETUP_FAILED);
+    }
+
+    @Test
+    public void testResolveFile() throws Exception {
+        Path keys = Files.createTempFile("resolve", ".txt");
+        try {
+            Files.write(keys, "resolve-test.com\n\n  10.203.0.1  \nmissing.example\n".getBytes(StandardCharsets.UTF_8));
+            int code = runner.execute(Arrays.asList("add resolve-test.com 10.203.0.1", "resolve " + keys,
+                    "remove resolve-test.com"));
+            Assert.assertEquals(code, ScriptRunner.EXIT_OK);
+            Assert.assertEquals(output(), "applied\t1\nresolve-test.com\t10.203.0.1\n10.203.0.1\tresolve-test.com\n"
+                    + "missing.example\t-\napplied\t1\n");
+        } finally {
+            Files.deleteIfExists(keys);
+        }
+    }
+
+    @Test
+    public void testResolveMissingFileFails() {
+        int code = runner.execute(Arrays.asList("resolve /nonexistent/keys.txt"));
+        Assert.assertEquals(code, ScriptRunner.EXIT_COMMAND_FAILED);
+    }
+}
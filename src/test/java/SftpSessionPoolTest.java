@@ -0,0 +1,109 @@
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import sftp.ConnectionSettings;
+import sftp.SessionFactory;
+import sftp.SftpSessionPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SftpSessionPoolTest {
+    private final ConnectionSettings settings =
+            new ConnectionSettings("localhost", 22, "name", "pass").setStrictHostKeyChecking(false);
+    private SftpSessionPool pool;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        pool = new SftpSessionPool(new SessionFactory(), 2, 2, 0, 5_000);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testChannelIsReused() throws Exception {
+        ChannelSftp first;
+        try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+            first = pooled.getChannel();
+            Assert.assertTrue(first.isConnected(), "Выданный канал должен быть подключен");
+        }
+        try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+            Assert.assertSame(pooled.getChannel(), first, "Возвращенный канал должен выдаваться повторно");
+        }
+        Assert.assertEquals(pool.getSessionCount(settings), 1);
+    }
+
+    @Test
+    public void testChannelsShareSession() throws Exception {
+        try (SftpSessionPool.PooledChannel a = pool.borrow(settings);
+             SftpSessionPool.PooledChannel b = pool.borrow(settings)) {
+            Assert.assertNotSame(a.getChannel(), b.getChannel());
+            Assert.assertEquals(pool.getSessionCount(settings), 1, "Каналы должны открываться в одной сессии");
+            try (SftpSessionPool.PooledChannel c = pool.borrow(settings)) {
+                Assert.assertTrue(c.getChannel().isConnected());
+                Assert.assertEquals(pool.getSessionCount(settings), 2, "При заполнении сессии должна открываться новая");
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBorrowWithinLimits() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+                        return pooled.getChannel().pwd();
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                Assert.assertNotNull(result.get(), "Каждый поток должен получить рабочий канал");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertTrue(pool.getSessionCount(settings) <= 2, "Число сессий не должно превышать лимит");
+    }
+
+    @Test
+    public void testInvalidatedChannelIsNotReused() throws Exception {
+        ChannelSftp first;
+        try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+            first = pooled.getChannel();
+            pooled.invalidate();
+        }
+        Assert.assertFalse(first.isConnected(), "Неисправный канал должен закрываться при возврате");
+        try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+            Assert.assertNotSame(pooled.getChannel(), first);
+        }
+    }
+
+    @Test
+    public void testIdleSessionsAreEvicted() throws Exception {
+        try (SftpSessionPool pool = new SftpSessionPool(new SessionFactory(), 2, 2, 1, 5_000)) {
+            try (SftpSessionPool.PooledChannel pooled = pool.borrow(settings)) {
+                Assert.assertTrue(pooled.getChannel().isConnected());
+                Assert.assertEquals(pool.getSessionCount(settings), 1);
+            }
+            Thread.sleep(50);
+            pool.evictIdle();
+            Assert.assertEquals(pool.getSessionCount(settings), 0, "Простаивающая сессия должна закрываться");
+        }
+    }
+
+    @Test(expectedExceptions = JSchException.class)
+    public void testInvalidCredentials() throws Exception {
+        pool.borrow(new ConnectionSettings("localhost", 22, "name", "fake").setStrictHostKeyChecking(false));
+    }
+}